@@ -0,0 +1,15 @@
+package com.picksy.apigateway.config;
+
+import com.picksy.apigateway.loadbalancer.RoomAffinityLoadBalancerConfig;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+// Room and decision state lives in the instance that serves the room
+@Configuration
+@LoadBalancerClients({
+        @LoadBalancerClient(name = "ROOM-SERVICE", configuration = RoomAffinityLoadBalancerConfig.class),
+        @LoadBalancerClient(name = "DECISION-SERVICE", configuration = RoomAffinityLoadBalancerConfig.class)
+})
+public class LoadBalancerConfig {
+}
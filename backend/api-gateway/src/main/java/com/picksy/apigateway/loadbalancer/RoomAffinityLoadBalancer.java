@@ -0,0 +1,145 @@
+package com.picksy.apigateway.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends every request of a room to the same instance. The room code comes from the "room"
+// query parameter of the handshake (SockJS keeps it on all its requests) and is placed on
+// a consistent hash ring, so an instance joining or leaving only moves the rooms it takes
+// over or owned. Requests without a room code are balanced round-robin.
+@Slf4j
+public class RoomAffinityLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final String ROOM_PARAM = "room";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final int virtualNodes;
+    private final AtomicInteger position = new AtomicInteger(ThreadLocalRandom.current().nextInt(1000));
+
+    private volatile Ring ring = new Ring(new String[0], new long[0], new ServiceInstance[0]);
+
+    public RoomAffinityLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                    String serviceId,
+                                    int virtualNodes) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier =
+                supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+
+        return supplier.get(request).next().map(instances -> select(instances, roomCode(request)));
+    }
+
+    private Response<ServiceInstance> select(List<ServiceInstance> instances, String roomCode) {
+        if (instances.isEmpty()) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        if (roomCode == null) {
+            int next = (position.incrementAndGet() & Integer.MAX_VALUE) % instances.size();
+            return new DefaultResponse(instances.get(next));
+        }
+        return new DefaultResponse(ring(instances).get(hash(roomCode)));
+    }
+
+    // Rebuilt only when the set of instances changes
+    private Ring ring(List<ServiceInstance> instances) {
+        String[] ids = instances.stream().map(RoomAffinityLoadBalancer::key).sorted().toArray(String[]::new);
+
+        Ring current = ring;
+        if (Arrays.equals(current.ids, ids)) return current;
+
+        long[] points = new long[instances.size() * virtualNodes];
+        ServiceInstance[] owners = new ServiceInstance[points.length];
+
+        // Sorted by point, the owner of a point is found with a binary search
+        long[][] entries = new long[points.length][];
+        int i = 0;
+        for (int instance = 0; instance < instances.size(); instance++) {
+            String key = key(instances.get(instance));
+            for (int node = 0; node < virtualNodes; node++) {
+                entries[i++] = new long[] {hash(key + "#" + node), instance};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        for (i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = instances.get((int) entries[i][1]);
+        }
+
+        Ring rebuilt = new Ring(ids, points, owners);
+        ring = rebuilt;
+        return rebuilt;
+    }
+
+    private static String roomCode(Request request) {
+        if (!(request.getContext() instanceof RequestDataContext context)
+                || context.getClientRequest() == null) {
+            return null;
+        }
+
+        URI url = context.getClientRequest().getUrl();
+        String query = url == null ? null : url.getRawQuery();
+        if (query == null) return null;
+
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq > 0 && param.substring(0, eq).equals(ROOM_PARAM) && eq < param.length() - 1) {
+                return param.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+
+    // 64-bit FNV-1a with a final mix, spreads short keys such as room codes over the ring
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private record Ring(String[] ids, long[] points, ServiceInstance[] owners) {
+
+        // First point clockwise from the hash, wrapping around the end of the ring
+        private ServiceInstance get(long hash) {
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) index = -index - 1;
+            if (index == points.length) index = 0;
+            return owners[index];
+        }
+    }
+}
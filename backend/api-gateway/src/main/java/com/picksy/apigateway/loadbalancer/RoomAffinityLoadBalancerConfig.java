@@ -0,0 +1,24 @@
+package com.picksy.apigateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+// Per-client configuration, not a @Configuration so it is not picked up for every client
+public class RoomAffinityLoadBalancerConfig {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> roomAffinityLoadBalancer(
+            Environment environment, LoadBalancerClientFactory loadBalancerClientFactory) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        int virtualNodes = environment.getProperty("gateway.room-affinity.virtual-nodes", Integer.class, 160);
+
+        return new RoomAffinityLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId,
+                virtualNodes);
+    }
+}
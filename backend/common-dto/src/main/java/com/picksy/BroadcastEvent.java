@@ -0,0 +1,14 @@
+package com.picksy;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BroadcastEvent {
+    private String origin; // instance that published the message
+    private String destination; // STOMP destination, e.g. "/topic/room/1234567"
+    private String payload; // message as JSON
+}
@@ -0,0 +1,13 @@
+package com.picksy;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomArchiveEvent {
+    private String roomCode;
+    private String type; // "ARCHIVE" (results are kept) or "DELETE"
+}
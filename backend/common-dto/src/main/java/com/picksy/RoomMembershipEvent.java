@@ -0,0 +1,14 @@
+package com.picksy;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomMembershipEvent {
+    private String roomCode;
+    private Long userId;
+    private String type; // "JOIN", "LEAVE", "CLOSE" or "UPDATE" (room state, not membership)
+}
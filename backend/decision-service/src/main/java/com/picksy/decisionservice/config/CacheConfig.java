@@ -0,0 +1,42 @@
+package com.picksy.decisionservice.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.picksy.decisionservice.model.PollDTO;
+import com.picksy.decisionservice.util.CategoryType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${decision.category-cache.max-size:10000}")
+    private long categoryCacheMaxSize;
+
+    @Value("${decision.category-cache.ttl-seconds:600}")
+    private long categoryCacheTtlSeconds;
+
+    @Value("${decision.results-cache.max-size:1000}")
+    private long resultsCacheMaxSize;
+
+    @Bean
+    public AsyncCache<Long, CategoryType> categoryTypeCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(categoryCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(categoryCacheTtlSeconds))
+                .buildAsync();
+    }
+
+    // Results of finished rooms by room code, they never change once every poll is frozen
+    @Bean
+    public Cache<String, List<PollDTO>> resultsCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(resultsCacheMaxSize)
+                .build();
+    }
+}
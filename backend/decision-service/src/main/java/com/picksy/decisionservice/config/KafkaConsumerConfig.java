@@ -1,26 +1,53 @@
 package com.picksy.decisionservice.config;
 
-import com.picksy.DeletionEvent;
+import com.picksy.decisionservice.message.VoteCommand;
+import com.picksy.decisionservice.service.InboundDispatcher;
+import com.picksy.decisionservice.service.KafkaVoteIngestion;
+import com.picksy.decisionservice.service.TallyEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.utils.Utils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Configuration
 @EnableKafka
 public class KafkaConsumerConfig {
 
+    private static final long REVOKE_DRAIN_TIMEOUT_SECONDS = 10;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${decision.ingestion.partitions:12}")
+    private int votePartitions;
+
+    @Value("${decision.ingestion.concurrency:3}")
+    private int voteConcurrency;
+
     @Bean
     public ConsumerFactory<String, Object> multiTypeConsumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -42,4 +69,70 @@ public class KafkaConsumerConfig {
         factory.setConsumerFactory(multiTypeConsumerFactory());
         return factory;
     }
-}
\ No newline at end of file
+
+    // Votes are keyed by room code, the instance owning a partition owns its rooms
+    @Bean
+    public NewTopic voteTopic() {
+        return TopicBuilder.name(KafkaVoteIngestion.VOTE_TOPIC).partitions(votePartitions).build();
+    }
+
+    @Bean
+    public ConsumerFactory<String, VoteCommand> voteConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "decision-vote-group");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+
+        JsonDeserializer<VoteCommand> jsonDeserializer = new JsonDeserializer<>(VoteCommand.class, false);
+        jsonDeserializer.addTrustedPackages("*");
+
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), jsonDeserializer);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, VoteCommand> voteListenerContainerFactory(
+            TallyEngine tallyEngine, InboundDispatcher inboundDispatcher) {
+        ConcurrentKafkaListenerContainerFactory<String, VoteCommand> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(voteConsumerFactory());
+        factory.setConcurrency(voteConcurrency);
+
+        // Polls of revoked partitions move to another instance, it must see all their votes.
+        // Polls of the partitions the instance keeps stay in memory.
+        factory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                                        Collection<TopicPartition> partitions) {
+                Set<Integer> revoked = partitions.stream()
+                        .filter(partition -> partition.topic().equals(KafkaVoteIngestion.VOTE_TOPIC))
+                        .map(TopicPartition::partition)
+                        .collect(Collectors.toSet());
+                if (revoked.isEmpty()) return;
+
+                int partitionCount = consumer.partitionsFor(KafkaVoteIngestion.VOTE_TOPIC).size();
+                Predicate<String> moving = roomCode -> revoked.contains(partition(roomCode, partitionCount));
+
+                // Votes already consumed are applied before the tallies are written out
+                try {
+                    inboundDispatcher.drain(moving).get(REVOKE_DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | TimeoutException e) {
+                    log.warn("Votes of revoked partitions {} still queued: {}", revoked, e.toString());
+                }
+
+                tallyEngine.activeTallies().stream()
+                        .filter(tally -> moving.test(tally.getRoomCode()))
+                        .forEach(tally -> tallyEngine.evictPoll(tally.getPollId()));
+            }
+        });
+        return factory;
+    }
+
+    // Partition the producer picks for a vote keyed by the room code
+    private static int partition(String roomCode, int partitionCount) {
+        return Utils.toPositive(Utils.murmur2(roomCode.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+}
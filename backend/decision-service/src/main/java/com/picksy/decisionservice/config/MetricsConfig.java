@@ -0,0 +1,24 @@
+package com.picksy.decisionservice.config;
+
+import com.picksy.decisionservice.service.MembershipIndex;
+import com.picksy.decisionservice.service.TallyEngine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder activityGauges(TallyEngine tallyEngine, MembershipIndex membershipIndex) {
+        return registry -> {
+            Gauge.builder("decision.polls.active", tallyEngine, TallyEngine::activePolls)
+                    .description("Polls with an in-memory tally")
+                    .register(registry);
+            Gauge.builder("decision.rooms.active", membershipIndex, MembershipIndex::roomCount)
+                    .description("Rooms in the local membership index")
+                    .register(registry);
+        };
+    }
+}
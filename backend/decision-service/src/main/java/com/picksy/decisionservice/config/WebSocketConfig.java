@@ -1,15 +1,36 @@
 package com.picksy.decisionservice.config;
 
+import com.picksy.decisionservice.service.InboundDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // sharded - poll mailboxes spread over single-thread shards, virtual - a virtual thread per
+    // busy mailbox, bounded - fixed pool with a bounded queue, direct - on the channel thread
+    @Value("${decision.ws.inbound.mode:sharded}")
+    private String inboundMode;
+
+    @Value("${decision.ws.inbound.threads:16}")
+    private int inboundThreads;
+
+    @Value("${decision.ws.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws-poll")
@@ -22,4 +43,28 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setApplicationDestinationPrefixes("/app");
         registry.enableSimpleBroker("/topic");
     }
-}
\ No newline at end of file
+
+    @Bean(destroyMethod = "shutdown")
+    public InboundDispatcher inboundDispatcher(MeterRegistry meterRegistry) {
+        Executor[] shards = switch (inboundMode) {
+            // Every shard is one thread, a poll always runs on the same one
+            case "sharded" -> {
+                Executor[] executors = new Executor[inboundThreads];
+                for (int i = 0; i < inboundThreads; i++) {
+                    executors[i] = Executors.newSingleThreadExecutor(
+                            Thread.ofPlatform().name("poll-mailbox-" + i).factory());
+                }
+                yield executors;
+            }
+            case "virtual" -> new Executor[] {Executors.newVirtualThreadPerTaskExecutor()};
+            // When the queue is full the channel thread drains the mailbox itself (back pressure)
+            case "bounded" -> new Executor[] {new ThreadPoolExecutor(
+                    inboundThreads, inboundThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(inboundQueueCapacity),
+                    new ThreadPoolExecutor.CallerRunsPolicy())};
+            case "direct" -> new Executor[] {Runnable::run};
+            default -> throw new IllegalArgumentException("Unknown inbound mode: " + inboundMode);
+        };
+        return new InboundDispatcher(shards, meterRegistry);
+    }
+}
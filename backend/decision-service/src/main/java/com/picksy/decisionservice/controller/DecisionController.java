@@ -1,7 +1,7 @@
 package com.picksy.decisionservice.controller;
 
 import com.picksy.decisionservice.message.PollMessage;
-import com.picksy.decisionservice.service.DecisionService;
+import com.picksy.decisionservice.service.VoteIngestion;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -11,12 +11,12 @@ import org.springframework.stereotype.Controller;
 @Controller
 @RequiredArgsConstructor
 public class DecisionController {
-    private final DecisionService decisionService;
+    private final VoteIngestion voteIngestion;
 
     @MessageMapping("/poll/{roomCode}/{categoryId}")
     public void handleMessages(@DestinationVariable String roomCode,
                                @DestinationVariable Long categoryId,
                                @Payload PollMessage PollMessage ){
-        decisionService.messageHandling(roomCode, categoryId, PollMessage);
+        voteIngestion.submit(roomCode, categoryId, PollMessage);
     }
 }
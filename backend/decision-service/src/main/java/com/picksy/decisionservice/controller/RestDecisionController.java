@@ -2,14 +2,19 @@ package com.picksy.decisionservice.controller;
 
 import com.picksy.decisionservice.model.PollDTO;
 import com.picksy.decisionservice.service.DecisionService;
+import com.picksy.decisionservice.service.LiveTallyStream;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -18,6 +23,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RestDecisionController {
     private final DecisionService decisionService;
+    private final LiveTallyStream liveTallyStream;
 
     @Operation(
             summary = "Get voting results for a room",
@@ -31,4 +37,19 @@ public class RestDecisionController {
         return ResponseEntity.ok(decisionService.getResults(roomCode));
     }
 
+    @Operation(
+            summary = "Stream live tallies of a room",
+            description = "Server-sent events: a \"snapshot\" of the room's polls, then \"delta\" events with changed option counts."
+    )
+    @GetMapping(value = "/secure/room/{roomCode}/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamResults(
+            @Parameter(description = "Room code", required = true)
+            @PathVariable String roomCode,
+            @RequestHeader("X-User-Id") Long userId
+    ) {
+        return liveTallyStream.subscribe(roomCode, userId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.picksy.decisionservice.message;
+
+import com.picksy.decisionservice.model.ChoiceDTO;
+import lombok.*;
+
+import java.util.List;
+
+// One poll in the live stream. In a "snapshot" event choices hold the counts,
+// in a "delta" event they hold only the options that changed and by how much.
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LiveTallyMessage {
+    private Long pollId;
+    private Long categoryId;
+    private List<ChoiceDTO> choices;
+    private int votedCount;
+    private int participantsCount;
+}
@@ -0,0 +1,15 @@
+package com.picksy.decisionservice.message;
+
+import lombok.*;
+
+// A validated poll message on its way to the instance that owns the room's partition
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VoteCommand {
+    private String roomCode;
+    private Long categoryId;
+    private PollMessage message;
+}
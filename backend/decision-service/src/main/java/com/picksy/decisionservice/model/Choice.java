@@ -3,6 +3,9 @@ package com.picksy.decisionservice.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+@Table(uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"poll_id", "optionId"})
+})
 @Entity
 @Data
 @Builder
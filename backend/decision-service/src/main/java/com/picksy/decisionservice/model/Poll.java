@@ -37,6 +37,14 @@ public class Poll {
     // for counting users that already voted
     private int votedCount;
 
+    // ResultsSnapshot of the ended poll, results of finished rooms are read from here
+    @Column(columnDefinition = "bytea")
+    private byte[] resultsSnapshot;
+
+    // Snapshot taken from the poll's tally. One read from the database when the room closed
+    // may be behind the tally of another instance, which replaces it.
+    private boolean snapshotFinal;
+
     public void setChoices(List<Choice> choices){
         this.choices = choices;
         if (choices != null) {
@@ -2,4 +2,5 @@ package com.picksy.decisionservice.model;
 
 import java.util.List;
 
-public record PollDTO(Long pollId, Long categoryId, List<ChoiceDTO> choices, int participantsCount) {}
+// frozen: the results are final and will not change anymore
+public record PollDTO(Long pollId, Long categoryId, List<ChoiceDTO> choices, int participantsCount, boolean frozen) {}
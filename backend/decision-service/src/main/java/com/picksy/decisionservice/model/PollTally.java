@@ -0,0 +1,253 @@
+package com.picksy.decisionservice.model;
+
+import com.picksy.decisionservice.util.CategoryType;
+import com.picksy.decisionservice.util.LongIntHashMap;
+import com.picksy.decisionservice.util.VoterBitmaps;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory state of a single poll. Counts are authoritative, pending deltas are written
+// to the database by TallyEngine in batches.
+public class PollTally {
+    // Returned by changes to a tally TallyEngine has taken out, they belong to its successor
+    public static final int RETIRED = Integer.MIN_VALUE;
+    // Returned by a vote of a user that already cast it
+    public static final int DUPLICATE = -1;
+
+    @Getter private final Long pollId;
+    @Getter private final String roomCode;
+    @Getter private final Long categoryId;
+    private CategoryType categoryType;
+    private int participantsCount;
+    private int votedCount;
+
+    private final LongIntHashMap counts;
+    // Who voted for what, counts only grow with first votes. Restored from the stored voters
+    // on load, new ones are stored with the next flush.
+    private final VoterBitmaps voters;
+    private final List<Voter> pendingVoters = new ArrayList<>();
+    private final LongIntHashMap pendingCounts = new LongIntHashMap();
+    private int pendingVotedCount;
+    private boolean participantsCountChanged;
+    private boolean retired;
+
+    @Getter private volatile long lastActivity = System.currentTimeMillis();
+
+    // Serializes flushes of this poll so they reach the database in order.
+    // Not a monitor, a flush blocks on I/O and must not pin a virtual thread.
+    @Getter private final ReentrantLock flushLock = new ReentrantLock();
+
+    private PollTally(Poll poll, int votedCount, int expectedOptions) {
+        this.pollId = poll.getId();
+        this.roomCode = poll.getRoomCode();
+        this.categoryId = poll.getCategoryId();
+        this.categoryType = poll.getCategoryType();
+        this.participantsCount = poll.getParticipantsCount();
+        this.votedCount = votedCount;
+        this.counts = new LongIntHashMap(expectedOptions);
+        this.voters = new VoterBitmaps(expectedOptions);
+    }
+
+    // Sized for the options voted on so far, the maps grow with new ones
+    public static PollTally from(Poll poll, Collection<Choice> choices, int votedCount, Collection<Voter> voters) {
+        PollTally tally = new PollTally(poll, votedCount, choices.size());
+        for (Choice choice : choices) {
+            tally.counts.put(choice.getOptionId(), choice.getCount());
+        }
+        for (Voter voter : voters) {
+            if (voter.optionId() == PollVoter.CAST) {
+                tally.voters.markVoted(voter.userId());
+            } else {
+                tally.voters.add(voter.optionId(), voter.userId());
+            }
+        }
+        return tally;
+    }
+
+    // Write-through: records the user as a voter of the option, 0 when recorded or DUPLICATE
+    public synchronized int addVoter(long optionId, long userId) {
+        if (retired) return RETIRED;
+        return addVoterLocked(optionId, userId) ? 0 : DUPLICATE;
+    }
+
+    // Write-through, PICK: records that the user cast the vote, 0 when recorded or DUPLICATE
+    public synchronized int addVoter(long userId) {
+        if (retired) return RETIRED;
+        return markVotedLocked(userId) ? 0 : DUPLICATE;
+    }
+
+    // SWIPE: returns the new count of the option
+    public synchronized int vote(long optionId, long userId) {
+        if (retired) return RETIRED;
+        if (!addVoterLocked(optionId, userId)) return DUPLICATE;
+        lastActivity = System.currentTimeMillis();
+        pendingCounts.addTo(optionId, 1);
+        return counts.addTo(optionId, 1);
+    }
+
+    // PICK: one vote carries all options chosen by the user, returns the new voted count
+    public synchronized int votePick(List<Long> optionIds, long userId) {
+        if (retired) return RETIRED;
+        // A second vote of the user is rejected whole, whatever options it holds
+        if (!markVotedLocked(userId)) return DUPLICATE;
+        lastActivity = System.currentTimeMillis();
+        for (Long optionId : optionIds.stream().distinct().toList()) {
+            pendingCounts.addTo(optionId, 1);
+            counts.addTo(optionId, 1);
+        }
+        return increaseVotedCountLocked();
+    }
+
+    public synchronized int increaseVotedCount() {
+        if (retired) return RETIRED;
+        lastActivity = System.currentTimeMillis();
+        return increaseVotedCountLocked();
+    }
+
+    private boolean addVoterLocked(long optionId, long userId) {
+        if (!voters.add(optionId, userId)) return false;
+        pendingVoters.add(new Voter(optionId, userId));
+        return true;
+    }
+
+    private boolean markVotedLocked(long userId) {
+        if (!voters.markVoted(userId)) return false;
+        pendingVoters.add(new Voter(PollVoter.CAST, userId));
+        return true;
+    }
+
+    private int increaseVotedCountLocked() {
+        pendingVotedCount++;
+        return ++votedCount;
+    }
+
+    // Write-through mode: takes over counts returned by the database
+    public synchronized void applyPersisted(VoteResult result) {
+        lastActivity = System.currentTimeMillis();
+        for (int i = 0; i < result.optionIds().length; i++) {
+            counts.put(result.optionIds()[i], result.counts()[i]);
+        }
+        votedCount = result.votedCount();
+    }
+
+    public synchronized int getCount(long optionId) {
+        return counts.get(optionId, 0);
+    }
+
+    // Final counts when the poll ends, ordered by option id
+    public synchronized ResultsSnapshot snapshot() {
+        long[] optionIds = new long[counts.size()];
+        int[] idx = {0};
+        counts.forEach((optionId, count) -> optionIds[idx[0]++] = optionId);
+        Arrays.sort(optionIds);
+
+        int[] optionCounts = new int[optionIds.length];
+        for (int i = 0; i < optionIds.length; i++) {
+            optionCounts[i] = counts.get(optionIds[i], 0);
+        }
+        return new ResultsSnapshot(optionIds, optionCounts);
+    }
+
+    public synchronized int getParticipantsCount() {
+        return participantsCount;
+    }
+
+    public synchronized int getVotedCount() {
+        return votedCount;
+    }
+
+    public synchronized CategoryType getCategoryType() {
+        return categoryType;
+    }
+
+    // False when the tally is retired
+    public synchronized boolean setParticipantsCount(int participantsCount) {
+        if (retired) return false;
+        this.participantsCount = participantsCount;
+        this.participantsCountChanged = true;
+        return true;
+    }
+
+    public synchronized void setCategoryType(CategoryType categoryType) {
+        this.categoryType = categoryType;
+    }
+
+    public synchronized void removeOption(long optionId) {
+        counts.remove(optionId);
+        voters.removeOption(optionId);
+        pendingVoters.removeIf(voter -> voter.optionId() == optionId);
+        pendingCounts.remove(optionId);
+    }
+
+    // Stops taking changes, so a final flush leaves nothing behind. False when retired already.
+    public synchronized boolean retire() {
+        if (retired) return false;
+        retired = true;
+        return true;
+    }
+
+    // The final flush failed, the tally stays in use
+    public synchronized void reinstate() {
+        retired = false;
+    }
+
+    public synchronized boolean hasPending() {
+        return !pendingCounts.isEmpty() || !pendingVoters.isEmpty() || pendingVotedCount != 0
+                || participantsCountChanged;
+    }
+
+    // Takes the pending changes out of the tally, returns null when there is nothing to write
+    public synchronized Flush drainPending() {
+        if (!hasPending()) return null;
+
+        long[] optionIds = new long[pendingCounts.size()];
+        int[] optionCounts = new int[optionIds.length];
+        int[] deltas = new int[optionIds.length];
+        int[] idx = {0};
+        pendingCounts.forEach((optionId, delta) -> {
+            optionIds[idx[0]] = optionId;
+            optionCounts[idx[0]] = counts.get(optionId, 0);
+            deltas[idx[0]] = delta;
+            idx[0]++;
+        });
+
+        Flush flush = new Flush(
+                pollId, optionIds, optionCounts, deltas,
+                votedCount, pendingVotedCount, participantsCount, List.copyOf(pendingVoters));
+
+        pendingCounts.clear();
+        pendingVoters.clear();
+        pendingVotedCount = 0;
+        participantsCountChanged = false;
+        return flush;
+    }
+
+    // Puts back changes of a flush that could not be written
+    public synchronized void restorePending(Flush flush) {
+        for (int i = 0; i < flush.optionIds().length; i++) {
+            if (counts.containsKey(flush.optionIds()[i])) {
+                pendingCounts.addTo(flush.optionIds()[i], flush.deltas()[i]);
+            }
+        }
+        pendingVotedCount += flush.votedDelta();
+        pendingVoters.addAll(flush.voters());
+        participantsCountChanged = true;
+    }
+
+    public record Flush(Long pollId,
+                        long[] optionIds,
+                        int[] counts,
+                        int[] deltas,
+                        int votedCount,
+                        int votedDelta,
+                        int participantsCount,
+                        List<Voter> voters) {}
+
+    // optionId is PollVoter.CAST for the vote of a PICK poll
+    public record Voter(long optionId, long userId) {}
+}
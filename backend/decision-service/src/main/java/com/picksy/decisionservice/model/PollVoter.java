@@ -0,0 +1,31 @@
+package com.picksy.decisionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Participants that voted in a poll, a tally loaded again rejects their votes like the one before
+@Table(name = "poll_voter", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"pollId", "optionId", "userId"})
+})
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PollVoter {
+    // Option id of the row marking that the user cast the vote of a PICK poll
+    public static final long CAST = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long pollId;
+
+    private long optionId;
+
+    private Long userId;
+}
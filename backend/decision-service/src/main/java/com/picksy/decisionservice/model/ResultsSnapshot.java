@@ -0,0 +1,49 @@
+package com.picksy.decisionservice.model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Final counts of an ended poll, stored with the poll as
+// [option count][option ids (long)...][counts (int)...]
+public record ResultsSnapshot(long[] optionIds, int[] counts) {
+
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + optionIds.length * (Long.BYTES + Integer.BYTES));
+        buffer.putInt(optionIds.length);
+        for (long optionId : optionIds) buffer.putLong(optionId);
+        for (int count : counts) buffer.putInt(count);
+        return buffer.array();
+    }
+
+    public static ResultsSnapshot decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int size = buffer.getInt();
+        long[] optionIds = new long[size];
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++) optionIds[i] = buffer.getLong();
+        for (int i = 0; i < size; i++) counts[i] = buffer.getInt();
+        return new ResultsSnapshot(optionIds, counts);
+    }
+
+    public static ResultsSnapshot of(List<Choice> choices) {
+        List<Choice> sorted = new ArrayList<>(choices);
+        sorted.sort((a, b) -> Long.compare(a.getOptionId(), b.getOptionId()));
+
+        long[] optionIds = new long[sorted.size()];
+        int[] counts = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            optionIds[i] = sorted.get(i).getOptionId();
+            counts[i] = sorted.get(i).getCount();
+        }
+        return new ResultsSnapshot(optionIds, counts);
+    }
+
+    public List<ChoiceDTO> toChoices() {
+        List<ChoiceDTO> choices = new ArrayList<>(optionIds.length);
+        for (int i = 0; i < optionIds.length; i++) {
+            choices.add(new ChoiceDTO(optionIds[i], counts[i]));
+        }
+        return List.copyOf(choices);
+    }
+}
@@ -0,0 +1,34 @@
+package com.picksy.decisionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Append-only record of counted votes, folded into Choice and Poll counts by VoteLogCompactor
+@Table(name = "vote_log", indexes = {
+        @Index(columnList = "pollId, id")
+})
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VoteLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long pollId;
+
+    // null for an entry that changes the voted count of the poll
+    private Long optionId;
+
+    private int delta;
+
+    @Column(columnDefinition = "timestamp default now()")
+    private LocalDateTime createdAt;
+}
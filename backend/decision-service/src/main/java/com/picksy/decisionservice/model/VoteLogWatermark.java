@@ -0,0 +1,21 @@
+package com.picksy.decisionservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Single row, vote log entries up to compactedUpTo are already part of the counts
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VoteLogWatermark {
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+
+    private long compactedUpTo;
+}
@@ -0,0 +1,12 @@
+package com.picksy.decisionservice.model;
+
+// Counts of a poll right after a vote was applied
+public record VoteResult(long[] optionIds, int[] counts, int votedCount) {
+
+    public int countOf(long optionId) {
+        for (int i = 0; i < optionIds.length; i++) {
+            if (optionIds[i] == optionId) return counts[i];
+        }
+        return 0;
+    }
+}
@@ -5,6 +5,7 @@ import com.picksy.decisionservice.model.Poll;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
@@ -19,4 +20,24 @@ public interface ChoiceRepository extends JpaRepository<Choice, Long> {
     @Modifying
     @Query("DELETE FROM Choice c WHERE c.optionId = :optionId")
     void deleteByOptionId(Long optionId);
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM choice WHERE poll_id IN (SELECT id FROM poll WHERE room_code = :roomCode)",
+           nativeQuery = true)
+    void deleteByRoomCode(@Param("roomCode") String roomCode);
+
+    // Adds deltas to the options of a poll in one statement, missing rows are created.
+    // Returns (option_id, count) rows with the counts after the increment.
+    @Transactional
+    @Query(value = """
+        INSERT INTO choice (poll_id, option_id, count)
+        SELECT :pollId, v.option_id, v.delta
+        FROM unnest(ARRAY[:optionIds], ARRAY[:deltas]) AS v(option_id, delta)
+        ORDER BY v.option_id
+        ON CONFLICT (poll_id, option_id) DO UPDATE SET count = choice.count + EXCLUDED.count
+        RETURNING option_id, count
+        """, nativeQuery = true)
+    List<Object[]> incrementCounts(@Param("pollId") Long pollId,
+                                   @Param("optionIds") List<Long> optionIds,
+                                   @Param("deltas") List<Integer> deltas);
 }
@@ -4,7 +4,9 @@ import com.picksy.decisionservice.model.Poll;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -18,5 +20,67 @@ public interface PollRepository extends JpaRepository<Poll, Long> {
     List<Poll> findAllWithChoicesByRoomCode(String roomCode);
     @Transactional
     void deleteByCategoryId(Long categoryId);
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Poll p WHERE p.roomCode = :roomCode")
+    void deleteByRoomCode(String roomCode);
     List<Poll> findAllByCategoryId(Long categoryId);
+    Optional<Poll> findFirstByCategoryId(Long categoryId);
+
+    // Bumps voted count atomically and returns the new value, also locks the poll row
+    // so concurrent votes of one poll are applied one after another
+    @Transactional
+    @Query(value = """
+        UPDATE poll SET voted_count = voted_count + :delta, participants_count = :participantsCount
+        WHERE id = :pollId
+        RETURNING voted_count
+        """, nativeQuery = true)
+    Optional<Integer> incrementVotedCount(@Param("pollId") Long pollId,
+                                          @Param("delta") int delta,
+                                          @Param("participantsCount") int participantsCount);
+
+    // Freezes the results of a poll from the database, only when nothing froze it before
+    @Transactional
+    @Modifying
+    @Query("UPDATE Poll p SET p.resultsSnapshot = :snapshot WHERE p.id = :pollId AND p.resultsSnapshot IS NULL")
+    int saveResultsSnapshot(@Param("pollId") Long pollId, @Param("snapshot") byte[] snapshot);
+
+    // Freezes the results of a poll from its tally, replacing a snapshot read from the database.
+    // The first final snapshot wins.
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Poll p SET p.resultsSnapshot = :snapshot, p.snapshotFinal = true
+        WHERE p.id = :pollId AND p.snapshotFinal = false
+        """)
+    int saveFinalSnapshot(@Param("pollId") Long pollId, @Param("snapshot") byte[] snapshot);
+
+    // Reaped rooms closed long ago, no tally is left to replace their snapshots
+    @Transactional
+    @Modifying
+    @Query("UPDATE Poll p SET p.snapshotFinal = true WHERE p.roomCode = :roomCode AND p.resultsSnapshot IS NOT NULL")
+    int finalizeSnapshots(@Param("roomCode") String roomCode);
+
+    // Snapshots still listing a deleted option are dropped, those polls are read from choices again
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE poll SET results_snapshot = NULL, snapshot_final = false
+        WHERE id IN (SELECT poll_id FROM choice WHERE option_id = :optionId)
+        """, nativeQuery = true)
+    int clearResultsSnapshotsWithOption(@Param("optionId") Long optionId);
+
+    // Creates the poll unless it exists, concurrent creations of one poll never fail.
+    // Empty when the poll was already there.
+    @Transactional
+    @Query(value = """
+        INSERT INTO poll (room_code, category_id, participants_count, category_type, voted_count, snapshot_final)
+        VALUES (:roomCode, :categoryId, :participantsCount, :categoryType, 0, false)
+        ON CONFLICT (room_code, category_id) DO NOTHING
+        RETURNING id
+        """, nativeQuery = true)
+    Optional<Long> insertIfAbsent(@Param("roomCode") String roomCode,
+                                  @Param("categoryId") Long categoryId,
+                                  @Param("participantsCount") int participantsCount,
+                                  @Param("categoryType") String categoryType);
 }
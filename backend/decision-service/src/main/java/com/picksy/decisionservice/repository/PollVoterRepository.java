@@ -0,0 +1,47 @@
+package com.picksy.decisionservice.repository;
+
+import com.picksy.decisionservice.model.PollVoter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface PollVoterRepository extends JpaRepository<PollVoter, Long> {
+
+    // Voters already stored by an earlier flush are skipped
+    @Modifying
+    @Query(value = """
+        INSERT INTO poll_voter (poll_id, option_id, user_id)
+        SELECT :pollId, v.option_id, v.user_id
+        FROM unnest(ARRAY[:optionIds], ARRAY[:userIds]) AS v(option_id, user_id)
+        ON CONFLICT (poll_id, option_id, user_id) DO NOTHING
+        """, nativeQuery = true)
+    int insertVoters(@Param("pollId") Long pollId,
+                     @Param("optionIds") List<Long> optionIds,
+                     @Param("userIds") List<Long> userIds);
+
+    // (option_id, user_id) rows in the order they were stored
+    @Query(value = "SELECT option_id, user_id FROM poll_voter WHERE poll_id = :pollId ORDER BY id",
+           nativeQuery = true)
+    List<Object[]> findVoters(@Param("pollId") Long pollId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PollVoter v WHERE v.optionId = :optionId")
+    void deleteByOptionId(@Param("optionId") long optionId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM poll_voter WHERE poll_id IN (SELECT id FROM poll WHERE category_id = :categoryId)",
+           nativeQuery = true)
+    void deleteByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM poll_voter WHERE poll_id IN (SELECT id FROM poll WHERE room_code = :roomCode)",
+           nativeQuery = true)
+    void deleteByRoomCode(@Param("roomCode") String roomCode);
+}
@@ -0,0 +1,116 @@
+package com.picksy.decisionservice.repository;
+
+import com.picksy.decisionservice.model.VoteLogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface VoteLogRepository extends JpaRepository<VoteLogEntry, Long> {
+
+    // Appenders hold the lock shared until they commit. The compactor takes it exclusively only
+    // to read the last id, so every entry up to that id is committed when it folds them.
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock_shared(7310012)) l", nativeQuery = true)
+    Integer lockAppend();
+
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(7310012)) l", nativeQuery = true)
+    Integer lockAppendExclusive();
+
+    @Query(value = "SELECT coalesce(max(id), 0) FROM vote_log", nativeQuery = true)
+    long maxId();
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO vote_log (poll_id, option_id, delta, created_at)
+        SELECT :pollId, v.option_id, v.delta, now()
+        FROM unnest(ARRAY[:optionIds], ARRAY[:deltas]) AS v(option_id, delta)
+        """, nativeQuery = true)
+    int appendOptions(@Param("pollId") Long pollId,
+                      @Param("optionIds") List<Long> optionIds,
+                      @Param("deltas") List<Integer> deltas);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO vote_log (poll_id, option_id, delta, created_at)
+        VALUES (:pollId, NULL, :delta, now())
+        """, nativeQuery = true)
+    int appendVoted(@Param("pollId") Long pollId, @Param("delta") int delta);
+
+    // Adds the entries (from, to] to choice and poll counts in one statement
+    @Modifying
+    @Query(value = """
+        WITH entries AS (
+            SELECT poll_id, option_id, sum(delta) AS delta
+            FROM vote_log
+            WHERE id > :from AND id <= :to
+            GROUP BY poll_id, option_id
+        ), voted AS (
+            UPDATE poll p SET voted_count = p.voted_count + e.delta
+            FROM entries e
+            WHERE e.option_id IS NULL AND p.id = e.poll_id
+            RETURNING p.id
+        )
+        INSERT INTO choice (poll_id, option_id, count)
+        SELECT e.poll_id, e.option_id, e.delta
+        FROM entries e
+        WHERE e.option_id IS NOT NULL AND EXISTS (SELECT 1 FROM poll p WHERE p.id = e.poll_id)
+        ORDER BY e.poll_id, e.option_id
+        ON CONFLICT (poll_id, option_id) DO UPDATE SET count = choice.count + EXCLUDED.count
+        """, nativeQuery = true)
+    int fold(@Param("from") long from, @Param("to") long to);
+
+    // Current (option_id, count) of a poll: folded counts plus entries not folded yet.
+    // One statement, so a compaction running meanwhile is seen either fully or not at all.
+    @Query(value = """
+        SELECT option_id, sum(count) FROM (
+            SELECT option_id, count FROM choice WHERE poll_id = :pollId
+            UNION ALL
+            SELECT option_id, delta FROM vote_log
+            WHERE poll_id = :pollId AND option_id IS NOT NULL
+              AND id > coalesce((SELECT compacted_up_to FROM vote_log_watermark WHERE id = 1), 0)
+        ) c
+        GROUP BY option_id
+        """, nativeQuery = true)
+    List<Object[]> currentCounts(@Param("pollId") Long pollId);
+
+    // Same as currentCounts for every poll of a room, rows of (poll_id, option_id, count)
+    @Query(value = """
+        SELECT c.poll_id, c.option_id, sum(c.count) FROM (
+            SELECT ch.poll_id, ch.option_id, ch.count FROM choice ch
+            JOIN poll p ON p.id = ch.poll_id
+            WHERE p.room_code = :roomCode
+            UNION ALL
+            SELECT l.poll_id, l.option_id, l.delta FROM vote_log l
+            JOIN poll p ON p.id = l.poll_id
+            WHERE p.room_code = :roomCode AND l.option_id IS NOT NULL
+              AND l.id > coalesce((SELECT compacted_up_to FROM vote_log_watermark WHERE id = 1), 0)
+        ) c
+        GROUP BY c.poll_id, c.option_id
+        """, nativeQuery = true)
+    List<Object[]> currentRoomCounts(@Param("roomCode") String roomCode);
+
+    @Query(value = """
+        SELECT p.voted_count + coalesce((
+            SELECT sum(delta) FROM vote_log
+            WHERE poll_id = p.id AND option_id IS NULL
+              AND id > coalesce((SELECT compacted_up_to FROM vote_log_watermark WHERE id = 1), 0)
+        ), 0)
+        FROM poll p WHERE p.id = :pollId
+        """, nativeQuery = true)
+    int currentVotedCount(@Param("pollId") Long pollId);
+
+    // Entries of a deleted option would bring its choice back on the next fold
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM VoteLogEntry e WHERE e.optionId = :optionId")
+    void deleteByOptionId(Long optionId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM vote_log WHERE poll_id IN (SELECT id FROM poll WHERE room_code = :roomCode)",
+           nativeQuery = true)
+    void deleteByRoomCode(@Param("roomCode") String roomCode);
+}
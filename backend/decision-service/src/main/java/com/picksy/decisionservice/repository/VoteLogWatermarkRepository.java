@@ -0,0 +1,24 @@
+package com.picksy.decisionservice.repository;
+
+import com.picksy.decisionservice.model.VoteLogWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface VoteLogWatermarkRepository extends JpaRepository<VoteLogWatermark, Long> {
+
+    // Compactions of all instances run one after another on this row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<VoteLogWatermark> findWithLockById(Long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO vote_log_watermark (id, compacted_up_to) VALUES (1, 0) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    void createIfAbsent();
+}
@@ -1,5 +1,6 @@
 package com.picksy.decisionservice.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.picksy.decisionservice.model.OptionDTO;
 import com.picksy.decisionservice.util.CategoryType;
 import lombok.RequiredArgsConstructor;
@@ -16,6 +17,21 @@ import java.time.Duration;
 public class CategoryClient {
 
     private final WebClient.Builder webClientBuilder;
+    private final AsyncCache<Long, CategoryType> categoryTypeCache;
+
+    // Concurrent misses for the same category share one request, failed lookups are not cached
+    public Mono<CategoryType> getCategoryType(Long categoryId) {
+        return Mono.fromFuture(
+                () -> categoryTypeCache.get(categoryId, (id, executor) -> fetchCategoryType(id).toFuture()));
+    }
+
+    public void updateCategoryType(Long categoryId, CategoryType type) {
+        categoryTypeCache.synchronous().put(categoryId, type);
+    }
+
+    public void evictCategory(Long categoryId) {
+        categoryTypeCache.synchronous().invalidate(categoryId);
+    }
 
     public Flux<OptionDTO> getOptionsByCategory(Long categoryId) {
         return webClientBuilder.build()
@@ -38,7 +54,7 @@ public class CategoryClient {
                 });
     }
 
-    public Mono<CategoryType> getCategoryType(Long categoryId) {
+    private Mono<CategoryType> fetchCategoryType(Long categoryId) {
         return webClientBuilder.build()
                 .get()
                 .uri("lb://category-service/api/category/public/{catId}/type", categoryId)
@@ -2,38 +2,46 @@ package com.picksy.decisionservice.service;
 
 import com.picksy.decisionservice.message.PollMessage;
 import com.picksy.decisionservice.message.PollResultsMessage;
-import com.picksy.decisionservice.model.Choice;
-import com.picksy.decisionservice.model.ChoiceDTO;
 import com.picksy.decisionservice.model.Poll;
 import com.picksy.decisionservice.model.PollDTO;
-import com.picksy.decisionservice.repository.ChoiceRepository;
+import com.picksy.decisionservice.model.PollTally;
 import com.picksy.decisionservice.repository.PollRepository;
 import com.picksy.decisionservice.util.CategoryType;
 import com.picksy.decisionservice.util.MessageType;
-import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Service;
-import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 public class DecisionService {
-  private final SimpMessageSendingOperations messagingTemplate;
-  private final ChoiceRepository choiceRepository;
+  private final PollBroadcaster pollBroadcaster;
   private final PollRepository pollRepository;
   private final CategoryClient categoryClient;
-  private final RoomClient roomClient;
+  private final MembershipIndex membershipIndex;
+  private final TallyEngine tallyEngine;
+  private final ResultsStore resultsStore;
+  private final VoteMetrics voteMetrics;
+
+  // Polls being created by this instance, by room/category
+  private final Set<String> creating = ConcurrentHashMap.newKeySet();
 
-  @Transactional
   public void messageHandling(String roomCode, Long catId, PollMessage pollMessage) {
-    System.out.println(roomClient.isParticipant(roomCode, pollMessage.getUserId()).block());
-    if (Boolean.FALSE.equals(roomClient.isParticipant(roomCode, pollMessage.getUserId()).block()))
-        return;
+    if (!membershipIndex.isParticipant(roomCode, pollMessage.getUserId())) return;
+
+    apply(roomCode, catId, pollMessage);
+  }
+
+  // For messages whose sender was already checked
+  public void apply(String roomCode, Long catId, PollMessage pollMessage) {
+    voteMetrics.message(pollMessage.getMessageType());
 
     switch (pollMessage.getMessageType()) {
       case MessageType.SETUP:
@@ -58,162 +66,184 @@ public class DecisionService {
     }
   }
 
-  @Transactional
   protected void setup(String roomCode, Long catId, PollMessage pollMessage) {
+    // Active polls are answered from memory, only a new poll touches the database
+    Optional<PollTally> existing = tallyEngine.find(roomCode, catId);
+    if (existing.isPresent()) {
+      sendStart(roomCode, catId, existing.get());
+      return;
+    }
+
+    // Everyone sends SETUP when a category opens, only the first one creates the poll.
+    // The others are subscribed to the topic already and get the START it sends.
+    String key = roomCode + "/" + catId;
+    if (!creating.add(key)) return;
+
     try {
-      // Try to find or create within the same transaction
-      Poll poll =
-          pollRepository
-              .findByRoomCodeAndCategoryId(roomCode, catId)
-              .orElseGet(() -> pollRepository.save(buildPoll(roomCode, catId, pollMessage)));
+      PollTally tally = createPoll(roomCode, catId, pollMessage);
+      sendStart(roomCode, catId, tally);
+    } finally {
+      creating.remove(key);
+    }
+  }
 
-      messagingTemplate.convertAndSend(
-          "/topic/poll/" + roomCode + "/" + catId,
-          new PollMessage((long)0, null, MessageType.START, poll.getParticipantsCount()));
+  private void sendStart(String roomCode, Long catId, PollTally tally) {
+    pollBroadcaster.send(
+        roomCode,
+        catId,
+        new PollMessage((long)0, null, MessageType.START, tally.getParticipantsCount()));
+  }
 
-    } catch (DataIntegrityViolationException ex) {
-      // Another thread inserted concurrently – now fetch and proceed
-      Poll poll =
+  private PollTally createPoll(String roomCode, Long catId, PollMessage pollMessage) {
+    // Cached, a SETUP storm costs at most one call to category-service
+    CategoryType categoryType =
+        voteMetrics
+            .category()
+            .record(
+                () ->
+                    categoryClient
+                        .getCategoryType(catId)
+                        .onErrorResume(throwable -> knownCategoryType(catId, throwable))
+                        .blockOptional())
+            .orElseThrow(() -> new BadRequestException("Category not found"));
+
+    Optional<Long> pollId =
+        pollRepository.insertIfAbsent(
+            roomCode, catId, pollMessage.getParticipantsCount(), categoryType.name());
+
+    Poll poll;
+    if (pollId.isPresent()) {
+      poll =
+          Poll.builder()
+              .id(pollId.get())
+              .categoryId(catId)
+              .roomCode(roomCode)
+              .participantsCount(pollMessage.getParticipantsCount())
+              .categoryType(categoryType)
+              .build();
+
+      // Results of the room are no longer final
+      resultsStore.evict(roomCode);
+    } else {
+      // Created by another instance in the meantime
+      poll =
           pollRepository
               .findByRoomCodeAndCategoryId(roomCode, catId)
               .orElseThrow(() -> new IllegalStateException("Poll should exist now"));
     }
-  }
 
-  private Poll buildPoll(String roomCode, Long catId, PollMessage pollMessage) {
-    CategoryType type = categoryClient.getCategoryType(catId).block();
+    return tallyEngine.register(poll);
+  }
 
-    return Poll.builder()
-        .categoryId(catId)
-        .roomCode(roomCode)
-        .participantsCount(pollMessage.getParticipantsCount())
-        .categoryType(type)
-        .build();
+  // When category-service is unavailable the type is taken from an earlier poll of the category
+  private Mono<CategoryType> knownCategoryType(Long catId, Throwable throwable) {
+    return pollRepository
+        .findFirstByCategoryId(catId)
+        .map(poll -> Mono.just(poll.getCategoryType()))
+        .orElse(Mono.error(throwable));
   }
 
   // In PICK polls there is only one vote that have all the user choices
   // In SWIPE polls one vote have one choice innit
-  @Transactional
   protected void vote(String roomCode, Long catId, PollMessage pollMessage) {
-    Poll poll =
-        pollRepository
-            .findByRoomCodeAndCategoryId(roomCode, catId)
+    PollTally tally =
+        tallyEngine
+            .find(roomCode, catId)
             .orElseThrow(() -> new BadRequestException("Poll not found"));
 
     // SWIPE
-    if (poll.getCategoryType().equals(CategoryType.SWIPE)) {
+    if (tally.getCategoryType().equals(CategoryType.SWIPE)) {
       // There is only one option at once in SWIPE voting
-      Choice choice =
-          choiceRepository
-              .findByPollIdAndOptionId(poll.getId(), pollMessage.getOptionsId().getFirst())
-              .orElse(
-                  Choice.builder()
-                      .optionId(pollMessage.getOptionsId().getFirst())
-                      .count(0)
-                      .poll(poll)
-                      .build());
-      choice.setCount(choice.getCount() + 1);
-      choiceRepository.save(choice);
-
-      // We have a match
-      if (choice.getCount() == poll.getParticipantsCount()) {
-        // Winner is a List that only contain id of the matched choice
-        List<Long> winner = new ArrayList<>();
-        winner.add(choice.getOptionId());
-
-        System.out.println(winner);
-
-        messagingTemplate.convertAndSend(
-            "/topic/poll/" + roomCode + "/" + catId,
-            new PollMessage((long)0, winner, MessageType.MATCH, poll.getParticipantsCount()));
-      }
+      Long optionId = pollMessage.getOptionsId().getFirst();
+      tallyEngine
+          .voteSwipe(tally, optionId, pollMessage.getUserId())
+          .thenAccept(
+              count -> {
+                // A repeated swipe is not counted, it can not fake a match
+                if (count == tally.getParticipantsCount()) {
+                  // Winner is a List that only contain id of the matched choice
+                  List<Long> winner = new ArrayList<>();
+                  winner.add(optionId);
+
+                  pollBroadcaster.send(
+                      roomCode,
+                      catId,
+                      new PollMessage(
+                          (long) 0, winner, MessageType.MATCH, tally.getParticipantsCount()));
+                }
+              });
     }
     // PICK
-    else if (poll.getCategoryType().equals(CategoryType.PICK)) {
-      // Find choices based on categoryIds provided from the user
-      List<Choice> choices =
-          choiceRepository.findByPollIdAndOptionIdIn(poll.getId(), pollMessage.getOptionsId());
-
-      for (Long optionId : pollMessage.getOptionsId()) {
-        boolean anyMatch =
-            choices.stream().anyMatch(choice -> choice.getOptionId().equals(optionId));
-
-        if (!anyMatch) choices.add(Choice.builder().optionId(optionId).poll(poll).count(0).build());
-      }
-
-      // increase count for choices
-      for (Choice choice : choices) {
-        choice.setCount(choice.getCount() + 1);
-        choiceRepository.save(choice);
-      }
-      poll.setVotedCount(poll.getVotedCount() + 1);
-      pollRepository.save(poll);
-
-      if (poll.getVotedCount() == pollMessage.getParticipantsCount()) {
-        // if everyone voted send END message
-        messagingTemplate.convertAndSend(
-            "/topic/poll/" + roomCode + "/" + catId,
-            new PollMessage((long)0, null, MessageType.END, poll.getParticipantsCount()));
-      }
+    else if (tally.getCategoryType().equals(CategoryType.PICK)) {
+      // increase count for all options chosen by the user
+      tallyEngine
+          .votePick(tally, pollMessage.getOptionsId(), pollMessage.getUserId())
+          .thenAccept(
+              votedCount -> {
+                if (votedCount == pollMessage.getParticipantsCount()) {
+                  // A vote racing with an eviction is counted in the reloaded tally
+                  PollTally live = tallyEngine.find(roomCode, catId).orElse(tally);
+                  tallyEngine.flush(live);
+                  resultsStore.freeze(live);
+
+                  // if everyone voted send END message
+                  pollBroadcaster.send(
+                      roomCode,
+                      catId,
+                      new PollMessage(
+                          (long) 0, null, MessageType.END, tally.getParticipantsCount()));
+                }
+              });
     }
   }
 
   protected void end(String roomCode, Long catId, PollMessage pollMessage) {
-    pollRepository
-        .findByRoomCodeAndCategoryId(roomCode, catId)
-        .orElseThrow(() -> new BadRequestException("Poll not found"));
-    messagingTemplate.convertAndSend(
-        "/topic/poll/" + roomCode + "/" + catId,
+    PollTally tally =
+        tallyEngine
+            .find(roomCode, catId)
+            .orElseThrow(() -> new BadRequestException("Poll not found"));
+    tallyEngine.flush(tally);
+    resultsStore.freeze(tally);
+
+    pollBroadcaster.send(
+        roomCode,
+        catId,
         new PollMessage((long)0, null, MessageType.END, pollMessage.getParticipantsCount()));
   }
 
-  @Transactional
   protected void updateParticipantsCount(String roomCode, Long catId, PollMessage pollMessage) {
-    Poll poll =
-        pollRepository
-            .findByRoomCodeAndCategoryId(roomCode, catId)
+    PollTally tally =
+        tallyEngine
+            .find(roomCode, catId)
             .orElseThrow(() -> new BadRequestException("Poll not found"));
-    poll.setParticipantsCount(pollMessage.getParticipantsCount());
-    pollRepository.save(poll);
+    tallyEngine.updateParticipantsCount(tally, pollMessage.getParticipantsCount());
   }
 
-  @Transactional
   protected void increaseVotedCount(String roomCode, Long catId, PollMessage pollMessage) {
-    Poll poll =
-        pollRepository
-            .findByRoomCodeAndCategoryId(roomCode, catId)
+    PollTally tally =
+        tallyEngine
+            .find(roomCode, catId)
             .orElseThrow(() -> new BadRequestException("Poll not found"));
 
-    poll.setVotedCount(poll.getVotedCount() + 1);
-    pollRepository.save(poll);
-
-    List<Long> votedCount = new ArrayList<>();
-    votedCount.add(Long.parseLong(String.valueOf(poll.getVotedCount())));
-
-    messagingTemplate.convertAndSend(
-        "/topic/poll/" + roomCode + "/" + catId,
-        new PollMessage(
-                (long)0, votedCount, MessageType.INCREASE_VOTED_COUNT, pollMessage.getParticipantsCount()));
+    tallyEngine
+        .increaseVotedCount(tally)
+        .thenAccept(
+            votedCount -> {
+              List<Long> votedCounts = new ArrayList<>();
+              votedCounts.add((long) votedCount);
+
+              pollBroadcaster.progress(
+                  roomCode,
+                  catId,
+                  new PollMessage(
+                      (long) 0,
+                      votedCounts,
+                      MessageType.INCREASE_VOTED_COUNT,
+                      pollMessage.getParticipantsCount()));
+            });
   }
 
   public List<PollDTO> getResults(String roomCode) {
-    List<Poll> polls = pollRepository.findAllWithChoicesByRoomCode(roomCode);
-
-    if (polls.isEmpty()) {
-      throw new BadRequestException("Poll not found");
-    }
-
-    List<PollDTO> pollDTOS = new ArrayList<>();
-
-    for (Poll poll : polls) {
-      List<ChoiceDTO> choiceDTOS = new ArrayList<>();
-      for (Choice choice : poll.getChoices()) {
-        choiceDTOS.add(new ChoiceDTO(choice.getOptionId(), choice.getCount()));
-      }
-      pollDTOS.add(
-          new PollDTO(poll.getId(), poll.getCategoryId(), choiceDTOS, poll.getParticipantsCount()));
-    }
-
-    return pollDTOS;
+    return resultsStore.getResults(roomCode);
   }
 }
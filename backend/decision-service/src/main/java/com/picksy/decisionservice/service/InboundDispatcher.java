@@ -0,0 +1,152 @@
+package com.picksy.decisionservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+// Runs STOMP message handling off the inbound channel threads. Every poll (room/category) has
+// a mailbox whose messages are handled one after another in arrival order, different polls run
+// in parallel. A mailbox always runs on the same shard, with single-thread shards all changes
+// of a poll happen on one thread.
+@Slf4j
+public class InboundDispatcher {
+
+    private static final int MAX_BATCH = 64;
+
+    private final Executor[] shards;
+    private final ConcurrentMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Timer handlerTimer;
+
+    public InboundDispatcher(Executor[] shards, MeterRegistry meterRegistry) {
+        this.shards = shards;
+        Gauge.builder("decision.inbound.queue.depth", depth, AtomicInteger::get)
+                .description("STOMP messages waiting to be handled")
+                .register(meterRegistry);
+        Gauge.builder("decision.inbound.mailboxes", mailboxes, ConcurrentMap::size)
+                .description("Polls with a mailbox")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("decision.inbound.wait")
+                .description("Time a STOMP message waits in its mailbox before it is handled")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.handlerTimer = Timer.builder("decision.inbound.handler")
+                .description("Time spent handling a STOMP message")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void dispatch(String roomCode, Long categoryId, Runnable task) {
+        dispatch(roomCode + "/" + categoryId, task);
+    }
+
+    // Completes once the messages dispatched so far to the polls of the matching rooms are
+    // handled. Messages dispatched after the call are not waited for.
+    public CompletableFuture<Void> drain(Predicate<String> roomCodes) {
+        List<CompletableFuture<Void>> drained = new ArrayList<>();
+        for (String key : mailboxes.keySet()) {
+            if (!roomCodes.test(key.substring(0, key.lastIndexOf('/')))) continue;
+
+            CompletableFuture<Void> handled = new CompletableFuture<>();
+            dispatch(key, () -> handled.complete(null));
+            drained.add(handled);
+        }
+        return CompletableFuture.allOf(drained.toArray(CompletableFuture[]::new));
+    }
+
+    private void dispatch(String key, Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        Runnable measured = () -> {
+            depth.decrementAndGet();
+            waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            handlerTimer.record(task);
+        };
+
+        depth.incrementAndGet();
+        // Enqueued under the map lock, so prune never drops a mailbox that just got a message
+        Mailbox mailbox = mailboxes.compute(key, (k, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox(shard(k));
+            target.tasks.add(measured);
+            return target;
+        });
+        schedule(mailbox);
+    }
+
+    // Drops mailboxes without pending messages
+    @Scheduled(fixedDelayString = "${decision.ws.inbound.prune-interval-ms:60000}")
+    public void prune() {
+        mailboxes.keySet().forEach(key ->
+                mailboxes.computeIfPresent(key, (k, mailbox) -> mailbox.isIdle() ? null : mailbox));
+    }
+
+    public void shutdown() {
+        for (Executor shard : shards) {
+            if (shard instanceof ExecutorService executorService) {
+                executorService.shutdown();
+            }
+        }
+    }
+
+    private Executor shard(String key) {
+        return shards[Math.floorMod(key.hashCode(), shards.length)];
+    }
+
+    private void schedule(Mailbox mailbox) {
+        if (mailbox.running.compareAndSet(false, true)) {
+            mailbox.shard.execute(() -> drain(mailbox));
+        }
+    }
+
+    private void drain(Mailbox mailbox) {
+        Runnable task;
+        int handled = 0;
+        while ((task = mailbox.tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Handling STOMP message failed: {}", e.getMessage(), e);
+            }
+
+            // A busy poll yields its shard to the other mailboxes now and then
+            if (++handled == MAX_BATCH) {
+                mailbox.shard.execute(() -> drain(mailbox));
+                return;
+            }
+        }
+        mailbox.running.set(false);
+
+        // A message may have arrived after the last poll
+        if (!mailbox.tasks.isEmpty()) schedule(mailbox);
+    }
+
+    private static class Mailbox {
+        private final Executor shard;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private Mailbox(Executor shard) {
+            this.shard = shard;
+        }
+
+        private boolean isIdle() {
+            return !running.get() && tasks.isEmpty();
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.picksy.decisionservice.service;
 
 import com.picksy.DeletionEvent;
+import com.picksy.RoomArchiveEvent;
+import com.picksy.RoomMembershipEvent;
 import com.picksy.TypeUpdateEvent;
 import com.picksy.decisionservice.model.Poll;
 import com.picksy.decisionservice.repository.ChoiceRepository;
 import com.picksy.decisionservice.repository.PollRepository;
+import com.picksy.decisionservice.repository.PollVoterRepository;
+import com.picksy.decisionservice.repository.VoteLogRepository;
 import com.picksy.decisionservice.util.CategoryType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +25,13 @@ public class KafkaEventListener {
 
     private final PollRepository pollRepository;
     private final ChoiceRepository choiceRepository;
+    private final VoteLogRepository voteLogRepository;
+    private final PollVoterRepository pollVoterRepository;
+    private final TallyEngine tallyEngine;
+    private final MembershipIndex membershipIndex;
+    private final CategoryClient categoryClient;
+    private final ResultsStore resultsStore;
+    private final PollArchiver pollArchiver;
 
     @KafkaListener(topics = "category-deletion-topic", groupId = "room-service-group")
     @Transactional
@@ -28,8 +39,12 @@ public class KafkaEventListener {
         log.info("Delete event: {} for ID: {}", event.getType(), event.getId());
 
         if ("CATEGORY".equalsIgnoreCase(event.getType())) {
+            pollVoterRepository.deleteByCategoryId(event.getId());
             pollRepository.deleteByCategoryId(event.getId());
         } else if ("OPTION".equalsIgnoreCase(event.getType())) {
+            pollRepository.clearResultsSnapshotsWithOption(event.getId());
+            voteLogRepository.deleteByOptionId(event.getId());
+            pollVoterRepository.deleteByOptionId(event.getId());
             choiceRepository.deleteByOptionId(event.getId());
         }
     }
@@ -52,4 +67,69 @@ public class KafkaEventListener {
             System.err.println("Unrecognized category type: " + event.getNewType());
         }
     }
+
+    // Caches and tallies live in every instance, so they are invalidated with a group per instance
+    @KafkaListener(
+            topics = "category-deletion-topic",
+            groupId = "decision-cache-#{T(java.util.UUID).randomUUID()}")
+    public void evictDeleted(DeletionEvent event) {
+        if ("CATEGORY".equalsIgnoreCase(event.getType())) {
+            categoryClient.evictCategory(event.getId());
+            tallyEngine.evictCategory(event.getId());
+            resultsStore.evictAll();
+        } else if ("OPTION".equalsIgnoreCase(event.getType())) {
+            tallyEngine.removeOption(event.getId());
+            resultsStore.evictAll();
+        }
+    }
+
+    @KafkaListener(
+            topics = "category-type-update-topic",
+            groupId = "decision-cache-#{T(java.util.UUID).randomUUID()}")
+    public void evictTypeUpdate(TypeUpdateEvent event) {
+        try {
+            CategoryType newType = CategoryType.valueOf(event.getNewType());
+            categoryClient.updateCategoryType(event.getCategoryId(), newType);
+            tallyEngine.updateCategoryType(event.getCategoryId(), newType);
+        } catch (IllegalArgumentException e) {
+            log.warn("Unrecognized category type: {}", event.getNewType());
+        }
+    }
+
+    // Every instance needs all membership events, so each one consumes with its own group
+    @KafkaListener(
+            topics = "room-membership-topic",
+            groupId = "decision-membership-#{T(java.util.UUID).randomUUID()}")
+    public void handleMembership(RoomMembershipEvent event) {
+        switch (event.getType()) {
+            case "JOIN" -> membershipIndex.add(event.getRoomCode(), event.getUserId());
+            case "LEAVE" -> membershipIndex.remove(event.getRoomCode(), event.getUserId());
+            case "CLOSE" -> {
+                membershipIndex.removeRoom(event.getRoomCode());
+                resultsStore.freezeRoom(event.getRoomCode());
+            }
+            // Room state changed, the participants did not
+            case "UPDATE" -> {}
+            default -> log.warn("Unrecognized membership event: {}", event.getType());
+        }
+    }
+
+    // Rooms reaped by room-service, the polls are changed once
+    @KafkaListener(topics = "room-archive-topic", groupId = "decision-group")
+    public void handleArchive(RoomArchiveEvent event) {
+        switch (event.getType()) {
+            case "ARCHIVE" -> pollArchiver.archiveRoom(event.getRoomCode());
+            case "DELETE" -> pollArchiver.deleteRoom(event.getRoomCode());
+            default -> log.warn("Unrecognized archive event: {}", event.getType());
+        }
+    }
+
+    @KafkaListener(
+            topics = "room-archive-topic",
+            groupId = "decision-cache-#{T(java.util.UUID).randomUUID()}")
+    public void evictArchived(RoomArchiveEvent event) {
+        membershipIndex.removeRoom(event.getRoomCode());
+        tallyEngine.evictRoom(event.getRoomCode());
+        resultsStore.evict(event.getRoomCode());
+    }
 }
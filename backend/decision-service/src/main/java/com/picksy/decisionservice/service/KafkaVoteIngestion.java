@@ -0,0 +1,42 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.message.PollMessage;
+import com.picksy.decisionservice.message.VoteCommand;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+// The receiving instance only checks membership and publishes the message keyed by room code.
+// The instance owning the room's partition applies it, so every poll lives in one instance
+// and throughput grows with partitions. Results reach all sockets through the broker fan-out.
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "decision.ingestion.mode", havingValue = "kafka")
+public class KafkaVoteIngestion implements VoteIngestion {
+
+    public static final String VOTE_TOPIC = "poll-command-topic";
+
+    private final InboundDispatcher inboundDispatcher;
+    private final DecisionService decisionService;
+    private final MembershipIndex membershipIndex;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Override
+    public void submit(String roomCode, Long categoryId, PollMessage pollMessage) {
+        // Through the poll's mailbox, messages of a poll are published in arrival order
+        inboundDispatcher.dispatch(roomCode, categoryId, () -> {
+            if (!membershipIndex.isParticipant(roomCode, pollMessage.getUserId())) return;
+            kafkaTemplate.send(VOTE_TOPIC, roomCode, new VoteCommand(roomCode, categoryId, pollMessage));
+        });
+    }
+
+    @KafkaListener(topics = VOTE_TOPIC, containerFactory = "voteListenerContainerFactory")
+    public void apply(VoteCommand command) {
+        inboundDispatcher.dispatch(
+                command.getRoomCode(),
+                command.getCategoryId(),
+                () -> decisionService.apply(command.getRoomCode(), command.getCategoryId(), command.getMessage()));
+    }
+}
@@ -0,0 +1,196 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.message.LiveTallyMessage;
+import com.picksy.decisionservice.model.ChoiceDTO;
+import com.picksy.decisionservice.model.PollDTO;
+import com.picksy.decisionservice.model.PollTally;
+import com.picksy.decisionservice.model.ResultsSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Streams the tallies of a room over server-sent events. A new subscriber gets a "snapshot"
+// of the room's polls, then "delta" events with the options whose counts changed since what it
+// was sent last. Counts are read from the in-memory tallies only. Sends run on their own
+// threads, one at a time per subscriber: a slow client skips ticks and its next delta covers
+// them, it never holds up the scheduler or the other subscribers.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LiveTallyStream {
+
+    private final TallyEngine tallyEngine;
+    private final ResultsStore resultsStore;
+    private final MembershipIndex membershipIndex;
+
+    private final ExecutorService sender =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("live-tally-", 0).factory());
+
+    @Value("${decision.live.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final ConcurrentMap<String, Room> rooms = new ConcurrentHashMap<>();
+
+    // Empty when the user is not a participant of the room
+    public Optional<SseEmitter> subscribe(String roomCode, Long userId) {
+        if (!membershipIndex.isParticipant(roomCode, userId)) return Optional.empty();
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        Room room = rooms.compute(roomCode, (code, existing) -> {
+            Room subscribed = existing != null ? existing : new Room();
+            subscribed.subscribers.add(subscriber);
+            return subscribed;
+        });
+
+        emitter.onCompletion(() -> room.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> room.subscribers.remove(subscriber));
+        emitter.onError(e -> room.subscribers.remove(subscriber));
+        return Optional.of(emitter);
+    }
+
+    @Scheduled(fixedDelayString = "${decision.live.interval-ms:200}")
+    public void publish() {
+        rooms.keySet().forEach(roomCode ->
+                rooms.computeIfPresent(roomCode, (code, room) -> room.subscribers.isEmpty() ? null : room));
+        rooms.forEach(this::publish);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private void publish(String roomCode, Room room) {
+        Map<Long, PollState> current = new HashMap<>();
+        for (PollTally tally : tallyEngine.roomTallies(roomCode)) {
+            current.put(tally.getPollId(), new PollState(
+                    tally.getCategoryId(), tally.snapshot(), tally.getVotedCount(), tally.getParticipantsCount()));
+        }
+
+        for (Subscriber subscriber : room.subscribers) {
+            // Still sending an earlier tick
+            if (!subscriber.sending.compareAndSet(false, true)) continue;
+
+            List<SseEmitter.SseEventBuilder> events = events(roomCode, subscriber.sent, current);
+            if (events.isEmpty()) {
+                subscriber.sending.set(false);
+                continue;
+            }
+            sender.execute(() -> send(room, subscriber, events, current));
+        }
+    }
+
+    private void send(Room room, Subscriber subscriber, List<SseEmitter.SseEventBuilder> events,
+                      Map<Long, PollState> current) {
+        try {
+            for (SseEmitter.SseEventBuilder event : events) subscriber.emitter.send(event);
+            subscriber.sent = current;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+            room.subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    private List<SseEmitter.SseEventBuilder> events(String roomCode, Map<Long, PollState> sent,
+                                                    Map<Long, PollState> current) {
+        if (sent == null) {
+            return List.of(SseEmitter.event().name("snapshot").data(snapshot(roomCode, current)));
+        }
+
+        List<SseEmitter.SseEventBuilder> events = new ArrayList<>();
+        current.forEach((pollId, state) -> {
+            LiveTallyMessage delta = delta(pollId, sent.get(pollId), state);
+            if (delta != null) events.add(SseEmitter.event().name("delta").data(delta));
+        });
+        return events;
+    }
+
+    // Polls held in memory, or the cached final results when the room has no active poll here
+    private List<LiveTallyMessage> snapshot(String roomCode, Map<Long, PollState> current) {
+        List<LiveTallyMessage> polls = new ArrayList<>();
+        if (!current.isEmpty()) {
+            current.forEach((pollId, state) -> polls.add(new LiveTallyMessage(
+                    pollId, state.categoryId(), state.counts().toChoices(),
+                    state.votedCount(), state.participantsCount())));
+            return polls;
+        }
+
+        for (PollDTO poll : resultsStore.cached(roomCode).orElse(List.of())) {
+            polls.add(new LiveTallyMessage(
+                    poll.pollId(), poll.categoryId(), poll.choices(), 0, poll.participantsCount()));
+        }
+        return polls;
+    }
+
+    // Changed options of a poll, null when nothing changed. Both snapshots are sorted by option id.
+    private static LiveTallyMessage delta(Long pollId, PollState previous, PollState state) {
+        ResultsSnapshot before = previous != null ? previous.counts() : new ResultsSnapshot(new long[0], new int[0]);
+        ResultsSnapshot after = state.counts();
+
+        List<ChoiceDTO> changes = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < before.optionIds().length || j < after.optionIds().length) {
+            if (j == after.optionIds().length
+                    || (i < before.optionIds().length && before.optionIds()[i] < after.optionIds()[j])) {
+                // Option removed from the poll
+                changes.add(new ChoiceDTO(before.optionIds()[i], -before.counts()[i]));
+                i++;
+            } else if (i == before.optionIds().length || after.optionIds()[j] < before.optionIds()[i]) {
+                changes.add(new ChoiceDTO(after.optionIds()[j], after.counts()[j]));
+                j++;
+            } else {
+                int change = after.counts()[j] - before.counts()[i];
+                if (change != 0) changes.add(new ChoiceDTO(after.optionIds()[j], change));
+                i++;
+                j++;
+            }
+        }
+
+        boolean progress = previous == null
+                || previous.votedCount() != state.votedCount()
+                || previous.participantsCount() != state.participantsCount();
+        if (changes.isEmpty() && !progress) return null;
+
+        return new LiveTallyMessage(
+                pollId, state.categoryId(), changes, state.votedCount(), state.participantsCount());
+    }
+
+    private record PollState(Long categoryId, ResultsSnapshot counts, int votedCount, int participantsCount) {}
+
+    private static class Room {
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Polls as last sent to the client, null until the snapshot went out
+        private volatile Map<Long, PollState> sent;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
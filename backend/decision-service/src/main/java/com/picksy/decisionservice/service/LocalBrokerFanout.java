@@ -0,0 +1,20 @@
+package com.picksy.decisionservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+
+// Single instance (and tests): only sessions connected to this instance get the message
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "decision.broadcast.fanout", havingValue = "local", matchIfMissing = true)
+public class LocalBrokerFanout implements BrokerFanout {
+
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    @Override
+    public void publish(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+    }
+}
@@ -0,0 +1,22 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.message.PollMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+// Messages are applied by the instance the socket is connected to
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "decision.ingestion.mode", havingValue = "local", matchIfMissing = true)
+public class LocalVoteIngestion implements VoteIngestion {
+
+    private final InboundDispatcher inboundDispatcher;
+    private final DecisionService decisionService;
+
+    @Override
+    public void submit(String roomCode, Long categoryId, PollMessage pollMessage) {
+        inboundDispatcher.dispatch(
+                roomCode, categoryId, () -> decisionService.messageHandling(roomCode, categoryId, pollMessage));
+    }
+}
@@ -0,0 +1,62 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.util.LongHashSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Local view of room membership built from room-service membership events.
+// Only a miss goes to room-service over HTTP.
+@Service
+@RequiredArgsConstructor
+public class MembershipIndex {
+
+    private final RoomClient roomClient;
+    private final VoteMetrics voteMetrics;
+
+    private final ConcurrentMap<String, LongHashSet> rooms = new ConcurrentHashMap<>();
+
+    public boolean isParticipant(String roomCode, Long userId) {
+        if (userId == null) return false;
+        if (voteMetrics.membership().record(() -> contains(roomCode, userId))) return true;
+
+        // Joined before this instance caught up with the events
+        boolean participant = voteMetrics.roomService().record(
+                () -> Boolean.TRUE.equals(roomClient.isParticipant(roomCode, userId).block()));
+        if (participant) add(roomCode, userId);
+        return participant;
+    }
+
+    public boolean contains(String roomCode, Long userId) {
+        LongHashSet members = rooms.get(roomCode);
+        if (members == null) return false;
+        synchronized (members) {
+            return members.contains(userId);
+        }
+    }
+
+    public void add(String roomCode, Long userId) {
+        LongHashSet members = rooms.computeIfAbsent(roomCode, code -> new LongHashSet());
+        synchronized (members) {
+            members.add(userId);
+        }
+    }
+
+    public void remove(String roomCode, Long userId) {
+        LongHashSet members = rooms.get(roomCode);
+        if (members == null) return;
+        synchronized (members) {
+            members.remove(userId);
+        }
+    }
+
+    public void removeRoom(String roomCode) {
+        rooms.remove(roomCode);
+    }
+
+    public int roomCount() {
+        return rooms.size();
+    }
+}
@@ -0,0 +1,45 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.repository.ChoiceRepository;
+import com.picksy.decisionservice.repository.PollRepository;
+import com.picksy.decisionservice.repository.PollVoterRepository;
+import com.picksy.decisionservice.repository.VoteLogRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Polls of rooms reaped by room-service. Archived rooms keep their polls with the frozen
+// results only, polls of deleted rooms are dropped.
+@Service
+@RequiredArgsConstructor
+public class PollArchiver {
+
+    private final PollRepository pollRepository;
+    private final ChoiceRepository choiceRepository;
+    private final VoteLogRepository voteLogRepository;
+    private final PollVoterRepository pollVoterRepository;
+    private final ResultsStore resultsStore;
+    private final TransactionTemplate transactionTemplate;
+
+    public void archiveRoom(String roomCode) {
+        // Snapshots hold the results from now on, voters, choices and the log are not read again
+        resultsStore.freezeRoom(roomCode);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            pollRepository.finalizeSnapshots(roomCode);
+            pollVoterRepository.deleteByRoomCode(roomCode);
+            voteLogRepository.deleteByRoomCode(roomCode);
+            choiceRepository.deleteByRoomCode(roomCode);
+        });
+    }
+
+    public void deleteRoom(String roomCode) {
+        transactionTemplate.executeWithoutResult(status -> {
+            pollVoterRepository.deleteByRoomCode(roomCode);
+            voteLogRepository.deleteByRoomCode(roomCode);
+            choiceRepository.deleteByRoomCode(roomCode);
+            pollRepository.deleteByRoomCode(roomCode);
+        });
+        resultsStore.evict(roomCode);
+    }
+}
@@ -0,0 +1,140 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.message.PollMessage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Sends poll messages to /topic/poll/{room}/{cat}. Progress updates (INCREASE_VOTED_COUNT)
+// are merged per topic, at most one goes out per interval and it carries the latest count.
+// Every other message is sent right away, after the progress still waiting on its topic.
+@Service
+@Slf4j
+public class PollBroadcaster {
+
+    private final BrokerFanout brokerFanout;
+    private final VoteMetrics voteMetrics;
+    private final long progressIntervalMs;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "poll-broadcaster");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final ConcurrentMap<String, Topic> topics = new ConcurrentHashMap<>();
+
+    public PollBroadcaster(BrokerFanout brokerFanout,
+                           VoteMetrics voteMetrics,
+                           @Value("${decision.broadcast.progress-interval-ms:100}") long progressIntervalMs) {
+        this.brokerFanout = brokerFanout;
+        this.voteMetrics = voteMetrics;
+        this.progressIntervalMs = progressIntervalMs;
+    }
+
+    public void progress(String roomCode, Long categoryId, PollMessage message) {
+        String destination = destination(roomCode, categoryId);
+        while (true) {
+            Topic topic = topics.computeIfAbsent(destination, Topic::new);
+
+            synchronized (topic) {
+                // Taken out by flush after we got it, the update goes to the topic replacing it
+                if (topic.removed) continue;
+
+                // Votes can complete out of order, never replace a count with a smaller one
+                if (topic.pending == null || votedCount(message) >= votedCount(topic.pending)) {
+                    topic.pending = message;
+                }
+                if (topic.scheduled) return;
+
+                // First update of a quiet topic goes out right away
+                topic.scheduled = true;
+                scheduler.execute(() -> flush(topic));
+                return;
+            }
+        }
+    }
+
+    // START, MATCH and END: not rate limited, keep their order with the progress updates
+    public void send(String roomCode, Long categoryId, PollMessage message) {
+        String destination = destination(roomCode, categoryId);
+        while (true) {
+            Topic topic = topics.get(destination);
+            if (topic == null) {
+                publish(destination, message);
+                return;
+            }
+
+            synchronized (topic) {
+                // Progress may be waiting on the topic replacing it
+                if (topic.removed) continue;
+
+                sendPending(topic);
+                publish(destination, message);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void flush(Topic topic) {
+        synchronized (topic) {
+            if (topic.pending == null) {
+                // Quiet for a whole interval, the next update starts a new topic
+                topic.scheduled = false;
+                topic.removed = true;
+                topics.remove(topic.destination, topic);
+                return;
+            }
+
+            sendPending(topic);
+            scheduler.schedule(() -> flush(topic), progressIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sendPending(Topic topic) {
+        if (topic.pending == null) return;
+        try {
+            publish(topic.destination, topic.pending);
+        } catch (RuntimeException e) {
+            log.error("Broadcast to {} failed: {}", topic.destination, e.getMessage());
+        }
+        topic.pending = null;
+    }
+
+    private void publish(String destination, PollMessage message) {
+        voteMetrics.broadcast().record(() -> brokerFanout.publish(destination, message));
+    }
+
+    private static long votedCount(PollMessage message) {
+        List<Long> optionsId = message.getOptionsId();
+        return optionsId == null || optionsId.isEmpty() ? 0 : optionsId.getFirst();
+    }
+
+    private static String destination(String roomCode, Long categoryId) {
+        return "/topic/poll/" + roomCode + "/" + categoryId;
+    }
+
+    private static class Topic {
+        private final String destination;
+        private PollMessage pending;
+        private boolean scheduled;
+        // Out of the map, a caller still holding it looks the topic up again
+        private boolean removed;
+
+        private Topic(String destination) {
+            this.destination = destination;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.picksy.decisionservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.picksy.decisionservice.model.Choice;
+import com.picksy.decisionservice.model.Poll;
+import com.picksy.decisionservice.model.PollDTO;
+import com.picksy.decisionservice.model.PollTally;
+import com.picksy.decisionservice.model.ResultsSnapshot;
+import com.picksy.decisionservice.repository.PollRepository;
+import com.picksy.decisionservice.repository.VoteLogRepository;
+import jakarta.ws.rs.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Results of a room. Ended polls are frozen into a snapshot stored with the poll, once every
+// poll of a room has its final snapshot its results are served from a cache and never touch
+// the choices.
+@Service
+@RequiredArgsConstructor
+public class ResultsStore {
+
+    private final PollRepository pollRepository;
+    private final TallyEngine tallyEngine;
+    private final VoteLogRepository voteLogRepository;
+    private final Cache<String, List<PollDTO>> resultsCache;
+
+    // Called when a poll ends, after its tally was flushed
+    public void freeze(PollTally tally) {
+        pollRepository.saveFinalSnapshot(tally.getPollId(), tally.snapshot().encode());
+        resultsCache.invalidate(tally.getRoomCode());
+    }
+
+    // Room closed, every instance gets here. Polls whose tally lives on this instance are frozen
+    // from it, others from the database unless something froze them before: the instance
+    // holding their tally replaces that snapshot when it gets the same event.
+    public void freezeRoom(String roomCode) {
+        tallyEngine.flushRoom(roomCode);
+
+        Map<Long, PollTally> tallies = new HashMap<>();
+        for (PollTally tally : tallyEngine.roomTallies(roomCode)) {
+            tallies.put(tally.getPollId(), tally);
+        }
+
+        Map<Long, ResultsSnapshot> counts = null;
+        for (Poll poll : pollRepository.findAllByRoomCode(roomCode).orElse(List.of())) {
+            PollTally tally = tallies.get(poll.getId());
+            if (tally != null) {
+                if (!poll.isSnapshotFinal()) pollRepository.saveFinalSnapshot(poll.getId(), tally.snapshot().encode());
+            } else if (poll.getResultsSnapshot() == null) {
+                if (counts == null) counts = currentCounts(roomCode);
+                ResultsSnapshot snapshot = counts.getOrDefault(poll.getId(), ResultsSnapshot.of(List.of()));
+                pollRepository.saveResultsSnapshot(poll.getId(), snapshot.encode());
+            }
+        }
+        resultsCache.invalidate(roomCode);
+    }
+
+    public List<PollDTO> getResults(String roomCode) {
+        // A load returning null (room still running) is not cached
+        List<PollDTO> frozen = resultsCache.get(roomCode, this::loadFrozen);
+        if (frozen != null) return frozen;
+
+        List<Poll> polls = pollRepository.findAllByRoomCode(roomCode).orElse(List.of());
+
+        if (polls.isEmpty()) {
+            throw new BadRequestException("Poll not found");
+        }
+
+        Map<Long, ResultsSnapshot> counts = currentCounts(roomCode);
+        List<PollDTO> pollDTOS = new ArrayList<>();
+
+        for (Poll poll : polls) {
+            ResultsSnapshot snapshot = poll.getResultsSnapshot() != null
+                    ? ResultsSnapshot.decode(poll.getResultsSnapshot())
+                    : counts.getOrDefault(poll.getId(), ResultsSnapshot.of(List.of()));
+            pollDTOS.add(new PollDTO(
+                    poll.getId(),
+                    poll.getCategoryId(),
+                    snapshot.toChoices(),
+                    poll.getParticipantsCount(),
+                    poll.isSnapshotFinal()));
+        }
+
+        return pollDTOS;
+    }
+
+    // Frozen results already in the cache, never loads
+    public Optional<List<PollDTO>> cached(String roomCode) {
+        return Optional.ofNullable(resultsCache.getIfPresent(roomCode));
+    }
+
+    public void evict(String roomCode) {
+        resultsCache.invalidate(roomCode);
+    }
+
+    public void evictAll() {
+        resultsCache.invalidateAll();
+    }
+
+    // Counts of the room's polls: tallies held in memory, otherwise folded counts plus the
+    // part of the vote log not compacted yet, as TallyEngine.register loads them
+    private Map<Long, ResultsSnapshot> currentCounts(String roomCode) {
+        Map<Long, List<Choice>> stored = new HashMap<>();
+        for (Object[] row : voteLogRepository.currentRoomCounts(roomCode)) {
+            stored.computeIfAbsent(((Number) row[0]).longValue(), pollId -> new ArrayList<>())
+                    .add(Choice.builder()
+                            .optionId(((Number) row[1]).longValue())
+                            .count(((Number) row[2]).intValue())
+                            .build());
+        }
+
+        Map<Long, ResultsSnapshot> counts = new HashMap<>();
+        stored.forEach((pollId, choices) -> counts.put(pollId, ResultsSnapshot.of(choices)));
+        for (PollTally tally : tallyEngine.roomTallies(roomCode)) {
+            counts.put(tally.getPollId(), tally.snapshot());
+        }
+        return counts;
+    }
+
+    private List<PollDTO> loadFrozen(String roomCode) {
+        List<Poll> polls = pollRepository.findAllByRoomCode(roomCode).orElse(List.of());
+        // Snapshots read from the database may still be replaced, those rooms are not cached
+        if (polls.isEmpty() || polls.stream().anyMatch(poll -> !poll.isSnapshotFinal())) {
+            return null;
+        }
+
+        return polls.stream()
+                .map(poll -> new PollDTO(
+                        poll.getId(),
+                        poll.getCategoryId(),
+                        ResultsSnapshot.decode(poll.getResultsSnapshot()).toChoices(),
+                        poll.getParticipantsCount(),
+                        true))
+                .toList();
+    }
+}
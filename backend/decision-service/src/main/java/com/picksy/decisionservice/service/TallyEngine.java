@@ -0,0 +1,258 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.model.Choice;
+import com.picksy.decisionservice.model.Poll;
+import com.picksy.decisionservice.model.PollTally;
+import com.picksy.decisionservice.model.VoteResult;
+import com.picksy.decisionservice.repository.PollRepository;
+import com.picksy.decisionservice.repository.PollVoterRepository;
+import com.picksy.decisionservice.repository.VoteLogRepository;
+import com.picksy.decisionservice.util.CategoryType;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToIntFunction;
+
+// Keeps tallies of active polls in memory. In write-behind mode votes never wait for the
+// database, changes are appended to the vote log on a timer and when a poll ends. In write-through mode votes
+// are applied with atomic statements in short per-poll windows (see VoteBatcher) and the
+// counts returned by the database are used.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TallyEngine {
+
+    private final PollRepository pollRepository;
+    private final VoteLogRepository voteLogRepository;
+    private final PollVoterRepository pollVoterRepository;
+    private final TallyPersister tallyPersister;
+    private final VoteBatcher voteBatcher;
+    private final VoteMetrics voteMetrics;
+
+    private final ConcurrentMap<String, PollTally> tallies = new ConcurrentHashMap<>();
+
+    @Value("${decision.tally.idle-eviction-ms:600000}")
+    private long idleEvictionMs;
+
+    @Value("${decision.tally.write-behind:true}")
+    private boolean writeBehind;
+
+    public Optional<PollTally> find(String roomCode, Long categoryId) {
+        PollTally tally = tallies.get(key(roomCode, categoryId));
+        if (tally != null) return Optional.of(tally);
+
+        return pollRepository.findByRoomCodeAndCategoryId(roomCode, categoryId).map(this::register);
+    }
+
+    public PollTally register(Poll poll) {
+        String key = key(poll.getRoomCode(), poll.getCategoryId());
+        PollTally existing = tallies.get(key);
+        if (existing != null) return existing;
+
+        // Counts already folded plus the part of the vote log not compacted yet
+        List<Choice> choices = new ArrayList<>();
+        List<PollTally.Voter> voters = new ArrayList<>();
+        int votedCount = poll.getVotedCount();
+        if (poll.getId() != null) {
+            for (Object[] row : voteLogRepository.currentCounts(poll.getId())) {
+                choices.add(Choice.builder()
+                        .optionId(((Number) row[0]).longValue())
+                        .count(((Number) row[1]).intValue())
+                        .build());
+            }
+            votedCount = voteLogRepository.currentVotedCount(poll.getId());
+
+            // Participants that voted before the tally was dropped cannot vote again
+            for (Object[] row : pollVoterRepository.findVoters(poll.getId())) {
+                voters.add(new PollTally.Voter(((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+            }
+        }
+
+        PollTally loaded = PollTally.from(poll, choices, votedCount, voters);
+        existing = tallies.putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    // Completes a vote the user already cast, it is not counted again. Also a vote for a poll
+    // that does not exist anymore.
+    public static final int DUPLICATE_VOTE = PollTally.DUPLICATE;
+
+    // SWIPE, completes with the new count of the option
+    public CompletableFuture<Integer> voteSwipe(PollTally tally, Long optionId, Long userId) {
+        if (writeBehind) {
+            return CompletableFuture.completedFuture(applyLive(tally, live -> live.vote(optionId, userId)));
+        }
+
+        if (applyLive(tally, live -> live.addVoter(optionId, userId)) == DUPLICATE_VOTE) {
+            return CompletableFuture.completedFuture(DUPLICATE_VOTE);
+        }
+        return voteBatcher.submit(tally, Map.of(optionId, 1), 0)
+                .thenApply(result -> result.countOf(optionId));
+    }
+
+    // PICK, completes with the new voted count
+    public CompletableFuture<Integer> votePick(PollTally tally, List<Long> optionIds, Long userId) {
+        if (writeBehind) {
+            return CompletableFuture.completedFuture(applyLive(tally, live -> live.votePick(optionIds, userId)));
+        }
+
+        // A second vote of the user is rejected whole, whatever options it holds
+        if (applyLive(tally, live -> live.addVoter(userId)) == DUPLICATE_VOTE) {
+            return CompletableFuture.completedFuture(DUPLICATE_VOTE);
+        }
+
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        optionIds.forEach(optionId -> deltas.put(optionId, 1));
+
+        return voteBatcher.submit(tally, deltas, 1).thenApply(VoteResult::votedCount);
+    }
+
+    public CompletableFuture<Integer> increaseVotedCount(PollTally tally) {
+        if (writeBehind) return CompletableFuture.completedFuture(applyLive(tally, PollTally::increaseVotedCount));
+
+        return voteBatcher.submit(tally, Map.of(), 1).thenApply(VoteResult::votedCount);
+    }
+
+    public void updateParticipantsCount(PollTally tally, int participantsCount) {
+        applyLive(tally, live -> live.setParticipantsCount(participantsCount) ? participantsCount : PollTally.RETIRED);
+        if (!writeBehind) find(tally.getRoomCode(), tally.getCategoryId()).ifPresent(this::flush);
+    }
+
+    // Runs the change on the tally of the poll that is in use. A tally retired in the meantime
+    // takes no changes anymore, they go to the tally reloaded after its final flush.
+    private int applyLive(PollTally tally, ToIntFunction<PollTally> change) {
+        PollTally live = tally;
+        while (true) {
+            int result = change.applyAsInt(live);
+            if (result != PollTally.RETIRED) return result;
+
+            // Held by retire until the final flush is written and the tally is out of the map
+            live.getFlushLock().lock();
+            live.getFlushLock().unlock();
+
+            Optional<PollTally> next = find(live.getRoomCode(), live.getCategoryId());
+            if (next.isEmpty()) return DUPLICATE_VOTE;
+            live = next.get();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${decision.tally.flush-interval-ms:250}")
+    public void flushAll() {
+        long idleSince = System.currentTimeMillis() - idleEvictionMs;
+
+        tallies.forEach((key, tally) -> {
+            // Polls nobody votes in anymore are dropped, they are reloaded on demand
+            if (tally.getLastActivity() < idleSince) {
+                retire(key, tally);
+            } else {
+                flush(tally);
+            }
+        });
+    }
+
+    public void flushRoom(String roomCode) {
+        roomTallies(roomCode).forEach(this::flush);
+    }
+
+    public int activePolls() {
+        return tallies.size();
+    }
+
+    public List<PollTally> activeTallies() {
+        return List.copyOf(tallies.values());
+    }
+
+    public List<PollTally> roomTallies(String roomCode) {
+        return tallies.values().stream()
+                .filter(tally -> tally.getRoomCode().equals(roomCode))
+                .toList();
+    }
+
+    // False when the pending changes could not be written, they stay in the tally
+    public boolean flush(PollTally tally) {
+        tally.getFlushLock().lock();
+        try {
+            PollTally.Flush flush = tally.drainPending();
+            if (flush == null) return true;
+
+            try {
+                // Commit included, the transaction ends inside write
+                voteMetrics.persistence().record(() -> tallyPersister.write(flush));
+                return true;
+            } catch (RuntimeException e) {
+                // Keep the changes, next flush will retry them
+                tally.restorePending(flush);
+                log.error("Flushing poll {} failed: {}", tally.getPollId(), e.getMessage());
+                return false;
+            }
+        } finally {
+            tally.getFlushLock().unlock();
+        }
+    }
+
+    // Drops the in-memory tally of a poll after its pending changes are written
+    public void evictPoll(Long pollId) {
+        tallies.forEach((key, tally) -> {
+            if (Objects.equals(tally.getPollId(), pollId)) retire(key, tally);
+        });
+    }
+
+    // Takes the tally out of the map. It is retired first so nothing reaches it after the final
+    // flush; changes that arrive meanwhile wait on the flush lock and go to a reloaded tally.
+    private void retire(String key, PollTally tally) {
+        tally.getFlushLock().lock();
+        try {
+            if (!tally.retire()) return;
+
+            if (!flush(tally)) {
+                // Kept until a flush gets through, nothing may be lost with it
+                tally.reinstate();
+                return;
+            }
+            tallies.remove(key, tally);
+        } finally {
+            tally.getFlushLock().unlock();
+        }
+    }
+
+    // Drops the in-memory tallies of a room, their pending changes are not written anymore
+    public void evictRoom(String roomCode) {
+        tallies.values().removeIf(tally -> tally.getRoomCode().equals(roomCode));
+    }
+
+    public void evictCategory(Long categoryId) {
+        tallies.values().removeIf(tally -> Objects.equals(tally.getCategoryId(), categoryId));
+    }
+
+    public void removeOption(Long optionId) {
+        tallies.values().forEach(tally -> tally.removeOption(optionId));
+    }
+
+    public void updateCategoryType(Long categoryId, CategoryType type) {
+        tallies.values().stream()
+                .filter(tally -> Objects.equals(tally.getCategoryId(), categoryId))
+                .forEach(tally -> tally.setCategoryType(type));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+    }
+
+    private static String key(String roomCode, Long categoryId) {
+        return roomCode + "/" + categoryId;
+    }
+}
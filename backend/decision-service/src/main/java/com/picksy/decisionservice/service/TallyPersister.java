@@ -0,0 +1,88 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.model.PollTally;
+import com.picksy.decisionservice.model.VoteResult;
+import com.picksy.decisionservice.repository.ChoiceRepository;
+import com.picksy.decisionservice.repository.PollRepository;
+import com.picksy.decisionservice.repository.PollVoterRepository;
+import com.picksy.decisionservice.repository.VoteLogRepository;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class TallyPersister {
+
+    private final PollRepository pollRepository;
+    private final ChoiceRepository choiceRepository;
+    private final VoteLogRepository voteLogRepository;
+    private final PollVoterRepository pollVoterRepository;
+
+    // Appends one flush of a poll to the vote log in a single transaction, VoteLogCompactor
+    // folds it into the counts later. New voters are stored with it, in write-through mode
+    // they are all a flush carries besides the participants count.
+    @Transactional
+    public void write(PollTally.Flush flush) {
+        voteLogRepository.lockAppend();
+
+        if (flush.optionIds().length > 0) {
+            List<Long> optionIds = new ArrayList<>(flush.optionIds().length);
+            List<Integer> deltas = new ArrayList<>(flush.optionIds().length);
+            for (int i = 0; i < flush.optionIds().length; i++) {
+                optionIds.add(flush.optionIds()[i]);
+                deltas.add(flush.deltas()[i]);
+            }
+            voteLogRepository.appendOptions(flush.pollId(), optionIds, deltas);
+        }
+        if (flush.votedDelta() != 0) {
+            voteLogRepository.appendVoted(flush.pollId(), flush.votedDelta());
+        }
+        if (!flush.voters().isEmpty()) {
+            List<Long> optionIds = new ArrayList<>(flush.voters().size());
+            List<Long> userIds = new ArrayList<>(flush.voters().size());
+            for (PollTally.Voter voter : flush.voters()) {
+                optionIds.add(voter.optionId());
+                userIds.add(voter.userId());
+            }
+            pollVoterRepository.insertVoters(flush.pollId(), optionIds, userIds);
+        }
+
+        pollRepository.incrementVotedCount(flush.pollId(), 0, flush.participantsCount());
+    }
+
+    // Applies a whole vote with one statement per table, concurrent votes never lose updates.
+    // The poll row is updated first, it serializes votes of the same poll.
+    @Transactional
+    public VoteResult apply(Long pollId, Map<Long, Integer> optionDeltas, int votedDelta, int participantsCount) {
+        int votedCount =
+                pollRepository
+                        .incrementVotedCount(pollId, votedDelta, participantsCount)
+                        .orElseThrow(() -> new BadRequestException("Poll not found"));
+
+        if (optionDeltas.isEmpty()) {
+            return new VoteResult(new long[0], new int[0], votedCount);
+        }
+
+        // Sorted, so every transaction locks choice rows in the same order
+        List<Long> optionIds = new ArrayList<>(optionDeltas.keySet());
+        Collections.sort(optionIds);
+        List<Integer> deltas = optionIds.stream().map(optionDeltas::get).toList();
+
+        List<Object[]> rows = choiceRepository.incrementCounts(pollId, optionIds, deltas);
+
+        long[] ids = new long[rows.size()];
+        int[] counts = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            ids[i] = ((Number) rows.get(i)[0]).longValue();
+            counts[i] = ((Number) rows.get(i)[1]).intValue();
+        }
+        return new VoteResult(ids, counts, votedCount);
+    }
+}
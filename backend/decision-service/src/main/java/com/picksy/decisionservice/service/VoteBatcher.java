@@ -0,0 +1,161 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.model.PollTally;
+import com.picksy.decisionservice.model.VoteResult;
+import com.picksy.decisionservice.util.LongIntHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Write-through mode: groups votes of a poll into short windows. A window is closed after
+// window-ms or max-votes votes, whichever comes first, and applied in one transaction.
+// Every vote still gets the counts it would have seen on its own.
+@Service
+@Slf4j
+public class VoteBatcher {
+
+    private final TallyPersister tallyPersister;
+    private final VoteMetrics voteMetrics;
+    private final long windowMs;
+    private final int maxVotes;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<Long, Window> windows = new ConcurrentHashMap<>();
+    private final Counter votesApplied;
+    private final DistributionSummary windowSize;
+
+    public VoteBatcher(TallyPersister tallyPersister,
+                       VoteMetrics voteMetrics,
+                       MeterRegistry meterRegistry,
+                       @Value("${decision.vote.batch.window-ms:20}") long windowMs,
+                       @Value("${decision.vote.batch.max-votes:64}") int maxVotes,
+                       @Value("${decision.vote.batch.threads:4}") int threads) {
+        this.tallyPersister = tallyPersister;
+        this.voteMetrics = voteMetrics;
+        this.windowMs = windowMs;
+        this.maxVotes = maxVotes;
+        this.scheduler = Executors.newScheduledThreadPool(threads);
+        this.votesApplied = Counter.builder("decision.votes.applied")
+                .description("Votes written to the database")
+                .register(meterRegistry);
+        this.windowSize = DistributionSummary.builder("decision.vote.batch.size")
+                .description("Votes applied per transaction")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<VoteResult> submit(PollTally tally, Map<Long, Integer> optionDeltas, int votedDelta) {
+        Vote vote = new Vote(optionDeltas, votedDelta, new CompletableFuture<>());
+
+        Window full = null;
+        Window window = windows.computeIfAbsent(tally.getPollId(), pollId -> openWindow(tally));
+        synchronized (window) {
+            if (window.closed) {
+                // Lost the race with the window being applied, start a new one
+                return submit(tally, optionDeltas, votedDelta);
+            }
+            window.votes.add(vote);
+            if (window.votes.size() >= maxVotes) {
+                windows.remove(tally.getPollId(), window);
+                window.closed = true;
+                full = window;
+            }
+        }
+
+        if (full != null) apply(full);
+        return vote.result();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        windows.values().forEach(this::close);
+        scheduler.shutdown();
+    }
+
+    private Window openWindow(PollTally tally) {
+        Window window = new Window(tally);
+        scheduler.schedule(() -> close(window), windowMs, TimeUnit.MILLISECONDS);
+        return window;
+    }
+
+    private void close(Window window) {
+        synchronized (window) {
+            if (window.closed) return;
+            windows.remove(window.tally.getPollId(), window);
+            window.closed = true;
+        }
+        apply(window);
+    }
+
+    private void apply(Window window) {
+        PollTally tally = window.tally;
+
+        Map<Long, Integer> deltas = new TreeMap<>();
+        int votedDelta = 0;
+        for (Vote vote : window.votes) {
+            vote.optionDeltas().forEach((optionId, delta) -> deltas.merge(optionId, delta, Integer::sum));
+            votedDelta += vote.votedDelta();
+        }
+
+        VoteResult result;
+        try {
+            int voted = votedDelta;
+            result = voteMetrics.persistence().record(
+                    () -> tallyPersister.apply(tally.getPollId(), deltas, voted, tally.getParticipantsCount()));
+        } catch (RuntimeException e) {
+            log.error("Applying {} votes of poll {} failed: {}",
+                    window.votes.size(), tally.getPollId(), e.getMessage());
+            window.votes.forEach(vote -> vote.result().completeExceptionally(e));
+            return;
+        }
+
+        tally.applyPersisted(result);
+        votesApplied.increment(window.votes.size());
+        windowSize.record(window.votes.size());
+
+        // Counts before the window, then replay the votes in arrival order
+        LongIntHashMap counts = new LongIntHashMap(result.optionIds().length);
+        for (int i = 0; i < result.optionIds().length; i++) {
+            counts.put(result.optionIds()[i], result.counts()[i] - deltas.getOrDefault(result.optionIds()[i], 0));
+        }
+        int votedCount = result.votedCount() - votedDelta;
+
+        for (Vote vote : window.votes) {
+            long[] optionIds = new long[vote.optionDeltas().size()];
+            int[] optionCounts = new int[optionIds.length];
+            int i = 0;
+            for (Map.Entry<Long, Integer> entry : vote.optionDeltas().entrySet()) {
+                optionIds[i] = entry.getKey();
+                optionCounts[i] = counts.addTo(entry.getKey(), entry.getValue());
+                i++;
+            }
+            votedCount += vote.votedDelta();
+            vote.result().complete(new VoteResult(optionIds, optionCounts, votedCount));
+        }
+    }
+
+    private static class Window {
+        private final PollTally tally;
+        private final List<Vote> votes = new ArrayList<>();
+        private boolean closed;
+
+        private Window(PollTally tally) {
+            this.tally = tally;
+        }
+    }
+
+    private record Vote(Map<Long, Integer> optionDeltas, int votedDelta, CompletableFuture<VoteResult> result) {}
+}
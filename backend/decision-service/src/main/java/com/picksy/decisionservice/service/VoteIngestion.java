@@ -0,0 +1,8 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.message.PollMessage;
+
+// Takes poll messages from STOMP and gets them applied by the instance responsible for the poll
+public interface VoteIngestion {
+    void submit(String roomCode, Long categoryId, PollMessage pollMessage);
+}
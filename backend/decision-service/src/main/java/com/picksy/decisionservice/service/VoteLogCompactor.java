@@ -0,0 +1,61 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.model.VoteLogWatermark;
+import com.picksy.decisionservice.repository.VoteLogRepository;
+import com.picksy.decisionservice.repository.VoteLogWatermarkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Folds the vote log into choice and poll counts on a schedule. Entries up to the watermark are
+// folded, readers add the entries after it to the folded counts themselves.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class VoteLogCompactor {
+
+    private final VoteLogRepository voteLogRepository;
+    private final VoteLogWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        watermarkRepository.createIfAbsent();
+    }
+
+    @Scheduled(fixedDelayString = "${decision.vote-log.compact-interval-ms:2000}")
+    public void compactScheduled() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // Entries stay in the log, next run folds them
+            log.error("Vote log compaction failed: {}", e.getMessage());
+        }
+    }
+
+    private void compact() {
+        // Waits for running appends, after this every entry up to upTo is committed
+        Long upTo = transactionTemplate.execute(status -> {
+            voteLogRepository.lockAppendExclusive();
+            return voteLogRepository.maxId();
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            VoteLogWatermark watermark = lockWatermark();
+            if (upTo == null || upTo <= watermark.getCompactedUpTo()) return;
+
+            voteLogRepository.fold(watermark.getCompactedUpTo(), upTo);
+            watermark.setCompactedUpTo(upTo);
+        });
+    }
+
+    private VoteLogWatermark lockWatermark() {
+        return watermarkRepository
+                .findWithLockById(VoteLogWatermark.ID)
+                .orElseGet(() -> watermarkRepository.save(new VoteLogWatermark(VoteLogWatermark.ID, 0)));
+    }
+}
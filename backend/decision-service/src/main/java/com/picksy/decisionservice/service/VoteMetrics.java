@@ -0,0 +1,73 @@
+package com.picksy.decisionservice.service;
+
+import com.picksy.decisionservice.util.MessageType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Meters of the vote path. Every stage a message passes has its own timer, so a slow room
+// shows whether the time goes to room-service, category-service, the database or the broker.
+@Component
+public class VoteMetrics {
+
+    private final Timer membership;
+    private final Timer roomService;
+    private final Timer category;
+    private final Timer persistence;
+    private final Timer broadcast;
+    private final Map<MessageType, Counter> messages = new EnumMap<>(MessageType.class);
+
+    public VoteMetrics(MeterRegistry meterRegistry) {
+        this.membership = stage(meterRegistry, "membership");
+        this.roomService = stage(meterRegistry, "room-service");
+        this.category = stage(meterRegistry, "category");
+        this.persistence = stage(meterRegistry, "persistence");
+        this.broadcast = stage(meterRegistry, "broadcast");
+
+        for (MessageType type : MessageType.values()) {
+            messages.put(type, Counter.builder("decision.messages")
+                    .description("Poll messages handled, by type")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    // Membership answered from the local index
+    public Timer membership() {
+        return membership;
+    }
+
+    // Membership the index did not know, asked room-service
+    public Timer roomService() {
+        return roomService;
+    }
+
+    public Timer category() {
+        return category;
+    }
+
+    public Timer persistence() {
+        return persistence;
+    }
+
+    public Timer broadcast() {
+        return broadcast;
+    }
+
+    public void message(MessageType type) {
+        if (type != null) messages.get(type).increment();
+    }
+
+    private static Timer stage(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("decision.vote.stage")
+                .description("Time a poll message spends in a stage of the vote path")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,37 @@
+package com.picksy.decisionservice.util;
+
+// Primitive long set on top of LongIntHashMap. Not thread safe, callers guard it.
+public class LongHashSet {
+
+    private final LongIntHashMap map;
+
+    public LongHashSet() {
+        this.map = new LongIntHashMap();
+    }
+
+    public LongHashSet(int expectedSize) {
+        this.map = new LongIntHashMap(expectedSize);
+    }
+
+    public boolean add(long value) {
+        if (map.containsKey(value)) return false;
+        map.put(value, 1);
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return map.containsKey(value);
+    }
+
+    public void remove(long value) {
+        map.remove(value);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+}
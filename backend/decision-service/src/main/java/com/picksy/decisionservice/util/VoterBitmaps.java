@@ -0,0 +1,86 @@
+package com.picksy.decisionservice.util;
+
+import java.util.Arrays;
+
+// Option id -> bitmap of the participants that voted for it. Participants get dense slots in
+// the order of their first vote, so a bitmap has one bit per voter of the poll whatever the
+// user ids are: 1,000 options with 50 voters take one long per option. One more bitmap marks the
+// participants that cast their vote of a PICK poll, whatever options it held.
+// Not thread safe, callers guard it.
+public class VoterBitmaps {
+
+    private final LongIntHashMap slots = new LongIntHashMap();
+    private final LongIntHashMap optionIndex;
+    private long[][] bitmaps;
+    private long[] voted = new long[1];
+    private int options;
+
+    public VoterBitmaps(int expectedOptions) {
+        int capacity = Math.max(expectedOptions, 8);
+        this.optionIndex = new LongIntHashMap(capacity);
+        this.bitmaps = new long[capacity][];
+    }
+
+    // Returns false when the user already voted for the option
+    public boolean add(long optionId, long userId) {
+        int slot = slot(userId);
+        int index = optionIndex.get(optionId, -1);
+        if (index < 0) index = addOption(optionId);
+
+        long[] bitmap = set(bitmaps[index], slot);
+        if (bitmap == null) return false;
+
+        bitmaps[index] = bitmap;
+        return true;
+    }
+
+    // Returns false when the user already cast a vote
+    public boolean markVoted(long userId) {
+        long[] bitmap = set(voted, slot(userId));
+        if (bitmap == null) return false;
+
+        voted = bitmap;
+        return true;
+    }
+
+    public void removeOption(long optionId) {
+        int index = optionIndex.get(optionId, -1);
+        if (index < 0) return;
+
+        optionIndex.remove(optionId);
+        bitmaps[index] = null;
+    }
+
+    private int slot(long userId) {
+        int slot = slots.get(userId, -1);
+        if (slot < 0) {
+            slot = slots.size();
+            slots.put(userId, slot);
+        }
+        return slot;
+    }
+
+    // Sets the bit of the slot, grown if needed. Null when the bit was set already.
+    private static long[] set(long[] bitmap, int slot) {
+        int word = slot >>> 6;
+        if (bitmap.length <= word) {
+            bitmap = Arrays.copyOf(bitmap, Math.max(word + 1, bitmap.length << 1));
+        }
+
+        long bit = 1L << slot;
+        if ((bitmap[word] & bit) != 0) return null;
+
+        bitmap[word] |= bit;
+        return bitmap;
+    }
+
+    private int addOption(long optionId) {
+        if (options == bitmaps.length) {
+            bitmaps = Arrays.copyOf(bitmaps, options << 1);
+        }
+        int index = options++;
+        optionIndex.put(optionId, index);
+        bitmaps[index] = new long[1];
+        return index;
+    }
+}
@@ -0,0 +1,91 @@
+package com.picksy.decisionservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.picksy.BroadcastEvent;
+import com.picksy.decisionservice.message.PollMessage;
+import com.picksy.decisionservice.service.KafkaBrokerFanout;
+import com.picksy.decisionservice.util.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class KafkaBrokerFanoutTests {
+
+    private static final String DESTINATION = "/topic/room/1000001/5";
+
+    private SimpMessageSendingOperations messagingTemplate;
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private KafkaBrokerFanout fanout;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        messagingTemplate = mock(SimpMessageSendingOperations.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        fanout = new KafkaBrokerFanout(messagingTemplate, kafkaTemplate, objectMapper);
+    }
+
+    @Test
+    void publishDeliversLocallyAndSendsToKafka() {
+        PollMessage message = new PollMessage(0L, List.of(3L), MessageType.MATCH, 4);
+
+        fanout.publish(DESTINATION, message);
+
+        verify(messagingTemplate).convertAndSend(DESTINATION, (Object) message);
+        BroadcastEvent event = sentEvent();
+        assertThat(event.getDestination()).isEqualTo(DESTINATION);
+        assertThat(event.getOrigin()).isNotBlank();
+    }
+
+    @Test
+    void redeliverSkipsEventsOfItsOwnOrigin() {
+        fanout.publish(DESTINATION, new PollMessage(0L, null, MessageType.END, 4));
+
+        fanout.redeliver(sentEvent());
+
+        // Only the publish reached the local sessions
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void redeliverSendsForeignEventsToTheirDestination() {
+        BroadcastEvent foreign = new BroadcastEvent(
+                "another-instance", DESTINATION, "{\"userId\":0,\"messageType\":\"END\",\"participantsCount\":4}");
+
+        fanout.redeliver(foreign);
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq(DESTINATION), payload.capture());
+        JsonNode json = (JsonNode) payload.getValue();
+        assertThat(json.get("messageType").asText()).isEqualTo("END");
+        assertThat(json.get("participantsCount").asInt()).isEqualTo(4);
+    }
+
+    @Test
+    void redeliverDropsUnreadablePayloads() {
+        fanout.redeliver(new BroadcastEvent("another-instance", DESTINATION, "{not json"));
+
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    private BroadcastEvent sentEvent() {
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(anyString(), eq(DESTINATION), event.capture());
+        return (BroadcastEvent) event.getValue();
+    }
+}
@@ -0,0 +1,133 @@
+package com.picksy.decisionservice;
+
+import com.picksy.decisionservice.util.LongIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTests {
+
+    // A new map has 8 slots
+    private static final int INITIAL_CAPACITY = 8;
+
+    @Test
+    void putGetAndAddTo() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        map.put(7L, 3);
+        map.put(7L, 4);
+        assertThat(map.get(7L, -1)).isEqualTo(4);
+        assertThat(map.size()).isEqualTo(1);
+
+        assertThat(map.addTo(7L, 2)).isEqualTo(6);
+        assertThat(map.addTo(-5L, 1)).isEqualTo(1);
+        assertThat(map.get(-5L, -1)).isEqualTo(1);
+        assertThat(map.get(42L, -1)).isEqualTo(-1);
+        assertThat(map.containsKey(42L)).isFalse();
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachableAcrossTheEndOfTheTable() {
+        // Three keys wanting the last slot fill it and wrap around to slots 0 and 1
+        List<Long> colliding = keysWithHome(INITIAL_CAPACITY - 1, 3);
+        // A key at home in slot 0 comes after them in the probe sequence
+        long atZero = keysWithHome(0, 1).getFirst();
+
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < colliding.size(); i++) map.put(colliding.get(i), i + 1);
+        map.put(atZero, 10);
+
+        map.remove(colliding.getFirst());
+
+        assertThat(map.containsKey(colliding.getFirst())).isFalse();
+        assertThat(map.get(colliding.get(1), -1)).isEqualTo(2);
+        assertThat(map.get(colliding.get(2), -1)).isEqualTo(3);
+        assertThat(map.get(atZero, -1)).isEqualTo(10);
+        assertThat(map.size()).isEqualTo(3);
+
+        map.remove(colliding.get(2));
+        map.remove(colliding.get(1));
+        assertThat(map.get(atZero, -1)).isEqualTo(10);
+        assertThat(map.size()).isEqualTo(1);
+
+        // Slots freed by the shifts are reused
+        assertThat(map.addTo(colliding.get(1), 5)).isEqualTo(5);
+        assertThat(map.get(atZero, -1)).isEqualTo(10);
+    }
+
+    @Test
+    void resizeKeepsEveryEntry() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key * 31, (int) key);
+        }
+
+        assertThat(map.size()).isEqualTo(10_000);
+        for (long key = 0; key < 10_000; key++) {
+            assertThat(map.get(key * 31, -1)).isEqualTo((int) key);
+        }
+
+        int[] visited = {0};
+        map.forEach((key, value) -> {
+            assertThat(key).isEqualTo(value * 31L);
+            visited[0]++;
+        });
+        assertThat(visited[0]).isEqualTo(10_000);
+    }
+
+    @Test
+    void behavesLikeAHashMapUnderRandomOperations() {
+        Random random = new Random(20_251_017);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // Few distinct keys, so most operations collide with earlier ones
+            long key = random.nextInt(300) - 150;
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    int value = random.nextInt(1000);
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                case 1 -> assertThat(map.addTo(key, 1)).isEqualTo(expected.merge(key, 1, Integer::sum));
+                case 2 -> {
+                    map.remove(key);
+                    expected.remove(key);
+                }
+                default -> assertThat(map.get(key, Integer.MIN_VALUE))
+                        .isEqualTo(expected.getOrDefault(key, Integer.MIN_VALUE));
+            }
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+
+        Map<Long, Integer> contents = new HashMap<>();
+        map.forEach(contents::put);
+        assertThat(contents).isEqualTo(expected);
+
+        map.clear();
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.size()).isZero();
+        map.forEach((key, value) -> {
+            throw new AssertionError("Entry left after clear: " + key);
+        });
+    }
+
+    // Keys whose home slot in a table of INITIAL_CAPACITY slots is the given one, same hash as
+    // LongIntHashMap uses
+    private static List<Long> keysWithHome(int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            if (((int) (hash ^ (hash >>> 32)) & (INITIAL_CAPACITY - 1)) == slot) keys.add(key);
+        }
+        return keys;
+    }
+}
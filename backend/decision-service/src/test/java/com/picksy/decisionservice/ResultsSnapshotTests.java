@@ -0,0 +1,78 @@
+package com.picksy.decisionservice;
+
+import com.picksy.decisionservice.model.Choice;
+import com.picksy.decisionservice.model.ChoiceDTO;
+import com.picksy.decisionservice.model.ResultsSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultsSnapshotTests {
+
+    @Test
+    void roundTripKeepsOptionsAndCounts() {
+        ResultsSnapshot snapshot = new ResultsSnapshot(
+                new long[] {1L, 42L, Long.MAX_VALUE, -7L},
+                new int[] {0, 13, Integer.MAX_VALUE, 1});
+
+        ResultsSnapshot decoded = ResultsSnapshot.decode(snapshot.encode());
+
+        assertThat(decoded.optionIds()).containsExactly(1L, 42L, Long.MAX_VALUE, -7L);
+        assertThat(decoded.counts()).containsExactly(0, 13, Integer.MAX_VALUE, 1);
+    }
+
+    @Test
+    void roundTripOfAnEmptyPoll() {
+        byte[] encoded = new ResultsSnapshot(new long[0], new int[0]).encode();
+
+        assertThat(encoded).hasSize(Integer.BYTES);
+        ResultsSnapshot decoded = ResultsSnapshot.decode(encoded);
+        assertThat(decoded.optionIds()).isEmpty();
+        assertThat(decoded.counts()).isEmpty();
+    }
+
+    @Test
+    void roundTripOfManyOptions() {
+        Random random = new Random(10);
+        long[] optionIds = random.longs(5_000).toArray();
+        int[] counts = random.ints(5_000, 0, 100_000).toArray();
+
+        ResultsSnapshot decoded = ResultsSnapshot.decode(new ResultsSnapshot(optionIds, counts).encode());
+
+        assertThat(decoded.optionIds()).containsExactly(optionIds);
+        assertThat(decoded.counts()).containsExactly(counts);
+    }
+
+    @Test
+    void encodingHasTheStoredLayout() {
+        byte[] encoded = new ResultsSnapshot(new long[] {5L, 9L}, new int[] {2, 3}).encode();
+
+        // Snapshots already in the database are read with this layout
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        assertThat(encoded).hasSize(Integer.BYTES + 2 * (Long.BYTES + Integer.BYTES));
+        assertThat(buffer.getInt()).isEqualTo(2);
+        assertThat(buffer.getLong()).isEqualTo(5L);
+        assertThat(buffer.getLong()).isEqualTo(9L);
+        assertThat(buffer.getInt()).isEqualTo(2);
+        assertThat(buffer.getInt()).isEqualTo(3);
+    }
+
+    @Test
+    void choicesAreOrderedByOptionAndSurviveTheRoundTrip() {
+        List<Choice> choices = List.of(
+                Choice.builder().optionId(30L).count(1).build(),
+                Choice.builder().optionId(10L).count(4).build(),
+                Choice.builder().optionId(20L).count(0).build());
+
+        ResultsSnapshot decoded = ResultsSnapshot.decode(ResultsSnapshot.of(choices).encode());
+
+        assertThat(decoded.toChoices()).containsExactly(
+                new ChoiceDTO(10L, 4),
+                new ChoiceDTO(20L, 0),
+                new ChoiceDTO(30L, 1));
+    }
+}
@@ -0,0 +1,102 @@
+package com.picksy.decisionservice;
+
+import com.picksy.decisionservice.model.Choice;
+import com.picksy.decisionservice.model.Poll;
+import com.picksy.decisionservice.model.VoteResult;
+import com.picksy.decisionservice.repository.ChoiceRepository;
+import com.picksy.decisionservice.repository.PollRepository;
+import com.picksy.decisionservice.service.TallyPersister;
+import com.picksy.decisionservice.util.CategoryType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TestcontainersConfiguration.class, TallyPersister.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TallyPersisterConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int VOTES_PER_THREAD = 50;
+
+    @Autowired
+    private TallyPersister tallyPersister;
+
+    @Autowired
+    private PollRepository pollRepository;
+
+    @Autowired
+    private ChoiceRepository choiceRepository;
+
+    @Test
+    void concurrentVotesOnOnePollAreNotLost() throws Exception {
+        Poll poll = pollRepository.save(Poll.builder()
+                .roomCode("1000001")
+                .categoryId(1L)
+                .categoryType(CategoryType.PICK)
+                .participantsCount(THREADS)
+                .build());
+        List<Long> optionIds = List.of(3L, 1L, 2L);
+
+        // Every vote has to observe its own voted count
+        Set<Integer> votedCounts = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            // Threads list the options in different orders
+            List<Long> order = new ArrayList<>(optionIds);
+            Collections.rotate(order, t);
+
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < VOTES_PER_THREAD; i++) {
+                    Map<Long, Integer> deltas = new LinkedHashMap<>();
+                    order.forEach(optionId -> deltas.put(optionId, 1));
+
+                    VoteResult result = tallyPersister.apply(poll.getId(), deltas, 1, THREADS);
+                    votedCounts.add(result.votedCount());
+                    assertThat(result.optionIds()).hasSize(optionIds.size());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int expected = THREADS * VOTES_PER_THREAD;
+
+        List<Choice> choices = choiceRepository.findByPollIdAndOptionIdIn(poll.getId(), optionIds);
+        assertThat(choices).hasSize(optionIds.size());
+        assertThat(choices).allSatisfy(choice -> assertThat(choice.getCount()).isEqualTo(expected));
+
+        assertThat(pollRepository.findById(poll.getId()).orElseThrow().getVotedCount()).isEqualTo(expected);
+        assertThat(votedCounts).hasSize(expected);
+    }
+}
@@ -0,0 +1,25 @@
+package com.picksy.roomservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.picksy.roomservice.response.PollDTOResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${room.results-cache.max-size:5000}")
+    private long resultsCacheMaxSize;
+
+    // Results of closed rooms never change, they are only dropped when the cache is full
+    @Bean
+    public Cache<String, List<PollDTOResponse>> closedResultsCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(resultsCacheMaxSize)
+                .build();
+    }
+}
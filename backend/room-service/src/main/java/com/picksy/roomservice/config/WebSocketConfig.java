@@ -1,7 +1,13 @@
 package com.picksy.roomservice.config;
 
+import com.picksy.roomservice.service.PresenceTracker;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -10,6 +16,19 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Both come from the broker configuration this class is part of, hence lazy
+    private final PresenceTracker presenceTracker;
+    private final TaskScheduler messageBrokerTaskScheduler;
+    private final long heartbeatMillis;
+
+    public WebSocketConfig(@Lazy PresenceTracker presenceTracker,
+                           @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler,
+                           @Value("${room.presence.heartbeat-ms:10000}") long heartbeatMillis) {
+        this.presenceTracker = presenceTracker;
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws-room")
@@ -21,6 +40,14 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.setApplicationDestinationPrefixes("/app");
-        registry.enableSimpleBroker("/topic");
+        // Client heartbeats keep the presence of an idle participant alive
+        registry.enableSimpleBroker("/topic")
+                .setHeartbeatValue(new long[] {heartbeatMillis, heartbeatMillis})
+                .setTaskScheduler(messageBrokerTaskScheduler);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(presenceTracker);
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,11 @@
 package com.picksy.roomservice.controller;
 
 import com.picksy.roomservice.model.PollDTO;
+import com.picksy.roomservice.request.MembershipBatchRequest;
 import com.picksy.roomservice.request.RoomActionRequest;
 import com.picksy.roomservice.request.RoomCreateRequest;
 import com.picksy.roomservice.request.RoomUserInfo;
+import com.picksy.roomservice.response.HistoryPage;
 import com.picksy.roomservice.response.PollDTOResponse;
 import com.picksy.roomservice.response.RoomDTO;
 import com.picksy.roomservice.service.RoomService;
@@ -14,8 +16,10 @@ import org.apache.coyote.BadRequestException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/room")
@@ -98,10 +102,9 @@ public class RoomController {
       summary = "Get voting results",
       description = "Returns voting results for all categories in the room.")
   @GetMapping("/public/{roomCode}/results")
-  public ResponseEntity<List<PollDTOResponse>> getPollResults(
-      @Parameter(description = "Unique room code") @PathVariable String roomCode)
-      throws BadRequestException {
-    return ResponseEntity.ok(roomService.getPolls(roomCode));
+  public Mono<ResponseEntity<List<PollDTOResponse>>> getPollResults(
+      @Parameter(description = "Unique room code") @PathVariable String roomCode) {
+    return roomService.getPolls(roomCode).map(ResponseEntity::ok);
   }
 
   @Operation(
@@ -117,11 +120,20 @@ public class RoomController {
   @Operation(
       summary = "Get user room history",
       description =
-          "Returns a list of closed rooms created or participated in by the authenticated user.")
+          "Returns one page of closed rooms the authenticated user participated in, newest first. Pass the returned nextCursor to get the next page.")
   @GetMapping("/secure/history")
-  public ResponseEntity<List<RoomDTO>> getUserHistory(@RequestHeader("X-User-Id") Long userId)
+  public ResponseEntity<HistoryPage> getUserHistory(
+      @RequestHeader("X-User-Id") Long userId,
+      @Parameter(description = "nextCursor of the previous page, empty for the first page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(description = "Rooms per page, at most 100") @RequestParam(defaultValue = "20")
+          int limit,
+      @Parameter(description = "Include participants and categories of every room")
+          @RequestParam(defaultValue = "false")
+          boolean expand)
       throws BadRequestException {
-    return ResponseEntity.ok(roomService.getAllClosedRoomsForUser(userId));
+    return ResponseEntity.ok(roomService.getHistory(userId, cursor, limit, expand));
   }
 
     @Operation(
@@ -186,4 +198,15 @@ public class RoomController {
     ) {
       return ResponseEntity.ok(roomService.isParticipant(roomCode, userId));
     }
+
+    @Operation(
+            summary = "Check participant membership in bulk",
+            description = "Checks many users against many rooms at once. Returns, for every room in the request, the given user IDs that are its participants."
+    )
+    @PostMapping("/secure/participants/batch")
+    public ResponseEntity<Map<String, List<Long>>> findParticipants(
+            @RequestBody MembershipBatchRequest request
+    ) throws BadRequestException {
+      return ResponseEntity.ok(roomService.findParticipants(request));
+    }
 }
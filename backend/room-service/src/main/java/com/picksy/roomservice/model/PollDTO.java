@@ -2,4 +2,5 @@ package com.picksy.roomservice.model;
 
 import java.util.List;
 
-public record PollDTO(Long pollId, Long categoryId, List<ChoiceDTO> choices, int participantsCount) {}
+// frozen: decision-service holds the final results of the poll
+public record PollDTO(Long pollId, Long categoryId, List<ChoiceDTO> choices, int participantsCount, boolean frozen) {}
@@ -8,11 +8,10 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @Entity
+@Table(indexes = @Index(name = "idx_room_created", columnList = "created_at, id"))
 @Data
 @Builder
 @AllArgsConstructor
@@ -45,27 +44,20 @@ public class Room {
   @Column(name = "owner_id")
   private Long ownerId;
 
-  @ElementCollection
-  @CollectionTable(name = "room_participants", joinColumns = @JoinColumn(name = "room_id"))
-  @MapKeyColumn(name = "user_id")
-  @Column(name = "username")
-  private Map<Long, String> participants;
-
   @Column(name = "current_category_idx")
   private int currentCategoryIndex = 0;
 
   @Column(name = "created_at")
   private LocalDateTime createdAt;
 
-  public Map.Entry<Long, String> addParticipant(Long id, String username) {
-    if (participants == null) {
-      participants = new HashMap<>();
-    }
-
-    participants.put(id, username);
+  // Set with roomClosed, closed rooms are reaped a while after this
+  @Column(name = "closed_at")
+  private LocalDateTime closedAt;
 
-    return Map.entry(id, username);
-  }
+    public void close() {
+        roomClosed = true;
+        closedAt = LocalDateTime.now();
+    }
 
     public void addSetCategory(Long setId, Long categoryId){
         if(categorySet == null){
@@ -73,12 +65,4 @@ public class Room {
         }
         categorySet.add(new SetCategoryKey(setId, categoryId));
     }
-
-  public void removeParticipant(Long id) {
-    participants.remove(id);
-  }
-
-  public int getParticipantCount() {
-    return participants != null ? participants.size() : 0;
-  }
 }
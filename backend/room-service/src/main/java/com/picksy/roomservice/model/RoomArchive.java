@@ -0,0 +1,57 @@
+package com.picksy.roomservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Compact copy of a reaped room that had voting, one row instead of a room with its
+// categories and participants. Guests are not kept, they can not see history anyway.
+@Entity
+@Table(
+    name = "room_archive",
+    indexes = @Index(name = "idx_room_archive_created", columnList = "created_at, id"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomArchive {
+
+  // Id the room had
+  @Id private Long id;
+
+  @Column(unique = true, name = "room_code")
+  private String roomCode;
+
+  private String name;
+
+  @Column(name = "owner_id")
+  private Long ownerId;
+
+  @JdbcTypeCode(SqlTypes.JSON)
+  private List<SetCategoryKey> categories;
+
+  @Column(name = "participant_count")
+  private int participantCount;
+
+  // Registered participants only, by user id
+  @JdbcTypeCode(SqlTypes.JSON)
+  private Map<Long, String> participants;
+
+  // Keys of participants, for finding the rooms of a user
+  @Column(name = "participant_ids", columnDefinition = "bigint[]")
+  private Long[] participantIds;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @Column(name = "archived_at")
+  private LocalDateTime archivedAt;
+}
@@ -0,0 +1,41 @@
+package com.picksy.roomservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One row per participant, joins and leaves touch a single row and never the room itself
+@Entity
+@Table(
+    name = "room_participants",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"room_id", "user_id"}),
+    indexes = @Index(name = "idx_room_participants_user", columnList = "user_id"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomParticipant {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "room_id", nullable = false)
+  private Long roomId;
+
+  @Column(name = "user_id", nullable = false)
+  private Long userId;
+
+  private String username;
+
+  @Column(name = "joined_at")
+  private LocalDateTime joinedAt;
+
+  // Last WebSocket session of the user, see PresenceTracker
+  @Column(name = "session_id")
+  private String sessionId;
+}
@@ -0,0 +1,76 @@
+package com.picksy.roomservice.model;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable copy of a room for reads, held by RoomRegistry
+public record RoomView(
+    Long id,
+    String roomCode,
+    String name,
+    List<SetCategoryKey> categories,
+    boolean votingStarted,
+    boolean roomClosed,
+    Long ownerId,
+    Map<Long, String> participants,
+    int currentCategoryIndex,
+    LocalDateTime createdAt) {
+
+  public static RoomView from(Room room, List<RoomParticipant> participants) {
+    Map<Long, String> byUser = new LinkedHashMap<>();
+    participants.forEach(participant -> byUser.put(participant.getUserId(), participant.getUsername()));
+
+    return new RoomView(
+        room.getId(),
+        room.getRoomCode(),
+        room.getName(),
+        room.getCategorySet() != null
+            ? room.getCategorySet().stream()
+                .map(key -> new SetCategoryKey(key.getSetId(), key.getCategoryId()))
+                .toList()
+            : List.of(),
+        room.isVotingStarted(),
+        room.isRoomClosed(),
+        room.getOwnerId(),
+        Collections.unmodifiableMap(byUser),
+        room.getCurrentCategoryIndex(),
+        room.getCreatedAt());
+  }
+
+  public boolean isParticipant(Long userId) {
+    return userId != null && participants.containsKey(userId);
+  }
+
+  public int participantCount() {
+    return participants.size();
+  }
+
+  public RoomView withParticipant(Long userId, String username) {
+    Map<Long, String> changed = new LinkedHashMap<>(participants);
+    changed.put(userId, username);
+    return withParticipants(changed);
+  }
+
+  public RoomView withoutParticipant(Long userId) {
+    Map<Long, String> changed = new LinkedHashMap<>(participants);
+    changed.remove(userId);
+    return withParticipants(changed);
+  }
+
+  public RoomView withParticipants(Map<Long, String> changed) {
+    return new RoomView(
+        id,
+        roomCode,
+        name,
+        categories,
+        votingStarted,
+        roomClosed,
+        ownerId,
+        Collections.unmodifiableMap(changed),
+        currentCategoryIndex,
+        createdAt);
+  }
+}
@@ -0,0 +1,41 @@
+package com.picksy.roomservice.repository;
+
+import com.picksy.roomservice.model.RoomArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface RoomArchiveRepository extends JpaRepository<RoomArchive, Long> {
+
+  Optional<RoomArchive> findByRoomCode(String roomCode);
+
+  // Copies rooms into the archive in one statement, categories and participants are folded
+  // into the row
+  @Modifying
+  @Query(
+      value =
+"""
+    INSERT INTO room_archive
+        (id, room_code, name, owner_id, categories, participant_count, participants,
+         participant_ids, created_at, archived_at)
+    SELECT r.id, r.room_code, r.name, r.owner_id,
+           (SELECT coalesce(jsonb_agg(jsonb_build_object(
+                        'setId', c.set_id_col, 'categoryId', c.category_id_col)), '[]'::jsonb)
+              FROM room_set_categories c WHERE c.room_id = r.id),
+           (SELECT count(*) FROM room_participants p WHERE p.room_id = r.id),
+           (SELECT coalesce(jsonb_object_agg(p.user_id::text, p.username), '{}'::jsonb)
+              FROM room_participants p WHERE p.room_id = r.id AND p.user_id > 0),
+           ARRAY(SELECT p.user_id FROM room_participants p
+                  WHERE p.room_id = r.id AND p.user_id > 0 ORDER BY p.user_id),
+           r.created_at, now()
+    FROM room r
+    WHERE r.id IN (:roomIds)
+    ON CONFLICT (id) DO NOTHING
+""",
+      nativeQuery = true)
+  int archive(@Param("roomIds") Collection<Long> roomIds);
+}
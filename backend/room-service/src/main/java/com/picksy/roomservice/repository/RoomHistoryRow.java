@@ -0,0 +1,20 @@
+package com.picksy.roomservice.repository;
+
+import java.time.LocalDateTime;
+
+// Summary columns of a room in a user's history, live or archived
+public interface RoomHistoryRow {
+  Long getId();
+
+  String getRoomCode();
+
+  String getName();
+
+  Long getOwnerId();
+
+  LocalDateTime getCreatedAt();
+
+  Long getParticipantCount();
+
+  Boolean getArchived();
+}
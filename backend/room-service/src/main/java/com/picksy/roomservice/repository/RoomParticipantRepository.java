@@ -0,0 +1,85 @@
+package com.picksy.roomservice.repository;
+
+import com.picksy.roomservice.model.RoomParticipant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RoomParticipantRepository extends JpaRepository<RoomParticipant, Long> {
+
+  List<RoomParticipant> findByRoomId(Long roomId);
+
+  List<RoomParticipant> findByRoomIdIn(Collection<Long> roomIds);
+
+  // Which of the (room code, user id) pairs are participants, for any number of pairs in one
+  // statement. Returns (room_code, user_id) rows.
+  @Query(
+      value =
+"""
+    SELECT q.room_code, q.user_id
+    FROM unnest(ARRAY[:roomCodes], ARRAY[:userIds]) AS q(room_code, user_id)
+    JOIN room r ON r.room_code = q.room_code
+    JOIN room_participants p ON p.room_id = r.id AND p.user_id = q.user_id
+""",
+      nativeQuery = true)
+  List<Object[]> findMembers(
+      @Param("roomCodes") List<String> roomCodes, @Param("userIds") List<Long> userIds);
+
+  // 0 when the user is in the room already, concurrent joins never block each other
+  @Modifying
+  @Query(
+      value =
+"""
+    INSERT INTO room_participants (room_id, user_id, username, joined_at)
+    VALUES (:roomId, :userId, :username, now())
+    ON CONFLICT (room_id, user_id) DO NOTHING
+""",
+      nativeQuery = true)
+  int insertIfAbsent(
+      @Param("roomId") Long roomId,
+      @Param("userId") Long userId,
+      @Param("username") String username);
+
+  @Modifying
+  @Query(
+      value = "DELETE FROM room_participants WHERE room_id = :roomId AND user_id = :userId",
+      nativeQuery = true)
+  int deleteParticipant(@Param("roomId") Long roomId, @Param("userId") Long userId);
+
+  // The WebSocket session the user connected with last, on whichever instance
+  @Modifying
+  @Query(
+      value =
+          "UPDATE room_participants SET session_id = :sessionId WHERE room_id = :roomId AND user_id = :userId",
+      nativeQuery = true)
+  int attachSession(
+      @Param("roomId") Long roomId,
+      @Param("userId") Long userId,
+      @Param("sessionId") String sessionId);
+
+  // 0 when the user has left already or connected again with another session since
+  @Modifying
+  @Query(
+      value =
+"""
+    DELETE FROM room_participants
+    WHERE room_id = :roomId AND user_id = :userId AND session_id = :sessionId
+""",
+      nativeQuery = true)
+  int deleteIfSession(
+      @Param("roomId") Long roomId,
+      @Param("userId") Long userId,
+      @Param("sessionId") String sessionId);
+
+  @Modifying
+  @Query(value = "DELETE FROM room_participants WHERE room_id = :roomId", nativeQuery = true)
+  void deleteByRoomId(@Param("roomId") Long roomId);
+
+  @Modifying
+  @Query(value = "DELETE FROM room_participants WHERE room_id IN (:roomIds)", nativeQuery = true)
+  void deleteByRoomIdIn(@Param("roomIds") Collection<Long> roomIds);
+}
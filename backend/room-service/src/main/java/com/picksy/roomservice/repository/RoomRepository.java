@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,23 +20,45 @@ public interface RoomRepository extends JpaRepository<Room, Long> {
   @Query("SELECT sc FROM Room r JOIN r.categorySet sc WHERE r.roomCode = :roomCode")
   List<SetCategoryKey> findAllSetCategoriesByRoomCode(@Param("roomCode") String roomCode);
 
-  @Query("SELECT COUNT(key(p)) FROM Room r JOIN r.participants p WHERE r.roomCode = :roomCode")
-  int getParticipantsCountByRoomCode(@Param("roomCode") String roomCode);
-
+  // One page of the closed rooms a user took part in, newest first, from the position after
+  // (createdAt, id). Archived rooms are part of the history too, found by array containment
+  // so the GIN index on participant_ids is used (= ANY can not use it).
   @Query(
-      "SELECT r FROM Room r JOIN r.participants p WHERE KEY(p) = :userId AND r.roomClosed = TRUE AND r.votingStarted = TRUE")
-  List<Room> findAllClosedByParticipant(@Param("userId") Long userId);
+      value =
+"""
+    (SELECT r.id AS "id", r.room_code AS "roomCode", r.name AS "name", r.owner_id AS "ownerId",
+            r.created_at AS "createdAt",
+            (SELECT count(*) FROM room_participants c WHERE c.room_id = r.id) AS "participantCount",
+            false AS "archived"
+     FROM room r
+     JOIN room_participants p ON p.room_id = r.id AND p.user_id = :userId
+     WHERE r.room_closed AND r.voting_started
+       AND (r.created_at, r.id) < (:createdAt, :id)
+     ORDER BY r.created_at DESC, r.id DESC
+     LIMIT :limit)
+    UNION ALL
+    (SELECT a.id, a.room_code, a.name, a.owner_id, a.created_at, a.participant_count, true
+     FROM room_archive a
+     WHERE a.participant_ids @> ARRAY[CAST(:userId AS bigint)]
+       AND (a.created_at, a.id) < (:createdAt, :id)
+     ORDER BY a.created_at DESC, a.id DESC
+     LIMIT :limit)
+    ORDER BY "createdAt" DESC, "id" DESC
+    LIMIT :limit
+""",
+      nativeQuery = true)
+  List<RoomHistoryRow> findHistoryPage(
+      @Param("userId") Long userId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      @Param("limit") int limit);
 
+  // (room_id, set_id, category_id) rows
   @Query(
-"""
-    SELECT CASE WHEN COUNT(p) > 0 THEN true ELSE false END
-    FROM Room r
-    JOIN r.participants p
-    WHERE r.roomCode = :roomCode
-      AND KEY(p) = :participantId
-""")
-  boolean existsParticipantInRoom(
-      @Param("roomCode") String roomCode, @Param("participantId") Long participantId);
+      value =
+          "SELECT c.room_id, c.set_id_col, c.category_id_col FROM room_set_categories c WHERE c.room_id IN (:roomIds)",
+      nativeQuery = true)
+  List<Object[]> findCategoriesOf(@Param("roomIds") Collection<Long> roomIds);
 
     @Modifying
     @Query(value = "DELETE FROM room_set_categories WHERE category_id_col = :categoryId", nativeQuery = true)
@@ -43,4 +67,46 @@ public interface RoomRepository extends JpaRepository<Room, Long> {
     @Modifying
     @Query(value = "DELETE FROM room_set_categories WHERE set_id_col = :setId", nativeQuery = true)
     void removeFromAllRoomsBySetId(@Param("setId") Long setId);
+
+  // Rooms closed before closedBefore, or open ones nobody created or joined since idleBefore.
+  // Locked, rooms taken by another instance's reaper are skipped.
+  @Query(
+      value =
+"""
+    SELECT r.id, r.room_code, r.voting_started FROM room r
+    WHERE (r.room_closed AND r.closed_at < :closedBefore)
+       OR (NOT r.room_closed AND r.created_at < :idleBefore
+           AND NOT EXISTS (SELECT 1 FROM room_participants p
+                           WHERE p.room_id = r.id AND p.joined_at >= :idleBefore))
+    ORDER BY r.id
+    LIMIT :limit
+    FOR UPDATE OF r SKIP LOCKED
+""",
+      nativeQuery = true)
+  List<Object[]> lockReapable(
+      @Param("closedBefore") LocalDateTime closedBefore,
+      @Param("idleBefore") LocalDateTime idleBefore,
+      @Param("limit") int limit);
+
+  @Query(
+      value =
+"""
+    SELECT count(*) FROM room r
+    WHERE (r.room_closed AND r.closed_at < :closedBefore)
+       OR (NOT r.room_closed AND r.created_at < :idleBefore
+           AND NOT EXISTS (SELECT 1 FROM room_participants p
+                           WHERE p.room_id = r.id AND p.joined_at >= :idleBefore))
+""",
+      nativeQuery = true)
+  long countReapable(
+      @Param("closedBefore") LocalDateTime closedBefore,
+      @Param("idleBefore") LocalDateTime idleBefore);
+
+  @Modifying
+  @Query(value = "DELETE FROM room_set_categories WHERE room_id IN (:roomIds)", nativeQuery = true)
+  void deleteCategoriesOf(@Param("roomIds") Collection<Long> roomIds);
+
+  @Modifying
+  @Query(value = "DELETE FROM room WHERE id IN (:roomIds)", nativeQuery = true)
+  void deleteAllByIdIn(@Param("roomIds") Collection<Long> roomIds);
 }
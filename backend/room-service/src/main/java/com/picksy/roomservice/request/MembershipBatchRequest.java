@@ -0,0 +1,7 @@
+package com.picksy.roomservice.request;
+
+import java.util.List;
+import java.util.Map;
+
+// User ids to check, by room code
+public record MembershipBatchRequest(Map<String, List<Long>> rooms) {}
@@ -0,0 +1,7 @@
+package com.picksy.roomservice.response;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record HistoryPage(List<RoomSummary> rooms, String nextCursor) {
+}
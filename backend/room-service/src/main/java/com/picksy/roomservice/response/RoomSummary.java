@@ -0,0 +1,17 @@
+package com.picksy.roomservice.response;
+
+import com.picksy.roomservice.model.SetCategoryKey;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Participants and categories are only filled when details are expanded
+public record RoomSummary(String roomCode,
+                          String name,
+                          Long ownerId,
+                          LocalDateTime createdAt,
+                          long participantCount,
+                          Map<Long, String> participants,
+                          List<SetCategoryKey> categories) {
+}
@@ -0,0 +1,6 @@
+package com.picksy.roomservice.service;
+
+// Delivers a message to the subscribers of a STOMP destination on every instance
+public interface BrokerFanout {
+    void publish(String destination, Object payload);
+}
@@ -1,7 +1,9 @@
 package com.picksy.roomservice.service;
 
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.picksy.DeletionEvent;
+import com.picksy.roomservice.response.PollDTOResponse;
 import com.picksy.roomservice.repository.RoomRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,12 +11,16 @@ import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 import jakarta.transaction.Transactional;
 
+import java.util.List;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class DeletionEventListener {
 
     private final RoomRepository roomRepository;
+    private final RoomRegistry roomRegistry;
+    private final Cache<String, List<PollDTOResponse>> closedResultsCache;
 
     @KafkaListener(topics = "category-deletion-topic", groupId = "room-service-group")
     @Transactional
@@ -26,5 +32,8 @@ public class DeletionEventListener {
         } else if ("SET".equalsIgnoreCase(event.getType())) {
             roomRepository.removeFromAllRoomsBySetId(event.getId());
         }
+        // Categories of any room may have changed
+        roomRegistry.evictAll();
+        closedResultsCache.invalidateAll();
     }
 }
@@ -0,0 +1,58 @@
+package com.picksy.roomservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.picksy.BroadcastEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+// Several instances: local sessions get the message right away, the other instances get it
+// through Kafka. Every instance consumes with its own group, so each one sees all messages.
+// Messages of one destination share a partition and keep their order.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "room.broadcast.fanout", havingValue = "kafka")
+public class KafkaBrokerFanout implements BrokerFanout {
+
+    private static final String BROADCAST_TOPIC = "room-broadcast-topic";
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Override
+    public void publish(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+
+        try {
+            String json = objectMapper.writeValueAsString(payload);
+            kafkaTemplate.send(BROADCAST_TOPIC, destination, new BroadcastEvent(instanceId, destination, json));
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize message for {}: {}", destination, e.getMessage());
+        }
+    }
+
+    @KafkaListener(
+            topics = BROADCAST_TOPIC,
+            groupId = "room-broadcast-#{T(java.util.UUID).randomUUID()}",
+            properties = "auto.offset.reset=latest")
+    public void redeliver(BroadcastEvent event) {
+        // Already delivered locally when it was published
+        if (instanceId.equals(event.getOrigin())) return;
+
+        try {
+            messagingTemplate.convertAndSend(event.getDestination(), objectMapper.readTree(event.getPayload()));
+        } catch (JsonProcessingException e) {
+            log.error("Could not read message for {}: {}", event.getDestination(), e.getMessage());
+        }
+    }
+}
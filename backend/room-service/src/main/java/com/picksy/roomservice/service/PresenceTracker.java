@@ -0,0 +1,180 @@
+package com.picksy.roomservice.service;
+
+import com.picksy.roomservice.util.HashedTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Participants who close the tab never call /leave. Every STOMP frame a session sends, heartbeats
+// included, moves the presence of its user forward; a presence that hears nothing for the timeout
+// leaves the room. Deadlines sit in a hashed timing wheel and a frame only writes the new
+// deadline, the wheel checks it when the old one comes due. A tick costs one bucket whatever the
+// number of sessions.
+@Service
+@Slf4j
+public class PresenceTracker implements ChannelInterceptor {
+
+    public static final String ROOM_CODE_HEADER = "roomCode";
+    public static final String USER_ID_HEADER = "userId";
+
+    private final RoomService roomService;
+    private final LongSupplier clock;
+    private final long timeoutMillis;
+    private final HashedTimingWheel<Presence> wheel;
+
+    private final Map<String, Presence> sessions = new ConcurrentHashMap<>();
+    private final Map<PresenceKey, Presence> presences = new ConcurrentHashMap<>();
+
+    private final Counter expired;
+
+    @Autowired
+    public PresenceTracker(RoomService roomService,
+                           MeterRegistry meterRegistry,
+                           @Value("${room.presence.timeout-ms:30000}") long timeoutMillis,
+                           @Value("${room.presence.tick-ms:1000}") long tickMillis,
+                           @Value("${room.presence.wheel-size:64}") int wheelSize) {
+        this(roomService, meterRegistry, timeoutMillis, tickMillis, wheelSize, System::currentTimeMillis);
+    }
+
+    // Clock in epoch milliseconds
+    public PresenceTracker(RoomService roomService,
+                           MeterRegistry meterRegistry,
+                           long timeoutMillis,
+                           long tickMillis,
+                           int wheelSize,
+                           LongSupplier clock) {
+        this.roomService = roomService;
+        this.clock = clock;
+        this.timeoutMillis = timeoutMillis;
+        this.wheel = new HashedTimingWheel<>(tickMillis, wheelSize, clock.getAsLong());
+
+        this.expired = Counter.builder("room.presence.expired")
+                .description("Participants removed after their connection went silent")
+                .register(meterRegistry);
+        Gauge.builder("room.presence.sessions", sessions, Map::size)
+                .description("WebSocket sessions bound to a participant")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String roomCode = accessor.getFirstNativeHeader(ROOM_CODE_HEADER);
+        Long userId = parseUserId(accessor.getFirstNativeHeader(USER_ID_HEADER));
+        // Sessions that do not say who they are only watch the room
+        if (sessionId == null || roomCode == null || userId == null) return;
+
+        try {
+            if (!roomService.attachSession(roomCode, userId, sessionId)) return;
+        } catch (RuntimeException e) {
+            log.error("Could not bind session {} to room {}: {}", sessionId, roomCode, e.getMessage());
+            return;
+        }
+
+        long deadline = clock.getAsLong() + timeoutMillis;
+        Presence presence = presences.compute(new PresenceKey(roomCode, userId), (key, current) -> {
+            if (current != null) {
+                current.sessionId = sessionId;
+                current.deadline = deadline;
+                return current;
+            }
+            Presence created = new Presence(key, sessionId, deadline);
+            wheel.schedule(created, deadline);
+            return created;
+        });
+        sessions.put(sessionId, presence);
+    }
+
+    // The presence is not refreshed anymore and runs out on its own, a reload in between keeps it
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    // Inbound frames of every session, heartbeats included
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            Presence presence = sessions.get(sessionId);
+            if (presence != null) presence.deadline = clock.getAsLong() + timeoutMillis;
+        }
+        return message;
+    }
+
+    @Scheduled(fixedRateString = "${room.presence.tick-ms:1000}")
+    public void tick() {
+        long now = clock.getAsLong();
+        List<Presence> due = wheel.advance(now);
+
+        for (Presence presence : due) {
+            String[] silentSession = new String[1];
+            // Atomic with onConnect, a user who connects again in the meantime stays
+            presences.computeIfPresent(presence.key, (key, current) -> {
+                if (current != presence || presence.deadline > now) return current;
+                silentSession[0] = presence.sessionId;
+                return null;
+            });
+
+            if (silentSession[0] != null) {
+                expire(presence.key, silentSession[0]);
+            } else if (presences.get(presence.key) == presence) {
+                // Refreshed since it was scheduled, checked again at the new deadline
+                wheel.schedule(presence, presence.deadline);
+            }
+        }
+    }
+
+    private void expire(PresenceKey key, String sessionId) {
+        sessions.remove(sessionId);
+        try {
+            roomService.expireParticipant(key.roomCode(), key.userId(), sessionId);
+            expired.increment();
+        } catch (RuntimeException e) {
+            // The participant stays, /leave or the reaper takes care of them
+            log.error("Could not expire user {} in room {}: {}", key.userId(), key.roomCode(), e.getMessage());
+        }
+    }
+
+    private static Long parseUserId(String value) {
+        if (value == null) return null;
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record PresenceKey(String roomCode, Long userId) {}
+
+    private static final class Presence {
+        private final PresenceKey key;
+        private volatile String sessionId;
+        private volatile long deadline;
+
+        private Presence(PresenceKey key, String sessionId, long deadline) {
+            this.key = key;
+            this.sessionId = sessionId;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.picksy.roomservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+// Hands out 7-digit room codes without looking at the rooms table. Every code comes from a
+// distinct sequence number passed through a keyed permutation (Feistel network), so codes never
+// repeat and consecutive rooms do not get consecutive codes. Sequence numbers are reserved in
+// blocks, the database is asked once per BLOCK_SIZE rooms.
+@Service
+public class RoomCodeAllocator {
+
+    // Changing it makes new blocks overlap the ones already handed out
+    private static final long BLOCK_SIZE = 100;
+
+    private static final int FIRST_CODE = 1_000_000;
+    private static final int CODE_COUNT = 9_000_000;
+    // Codes are permuted as 24-bit numbers, the smallest even split covering CODE_COUNT
+    private static final int HALF_BITS = 12;
+    private static final int HALF_MASK = (1 << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int[] roundKeys = new int[ROUNDS];
+
+    private long next;
+    private long blockEnd;
+
+    public RoomCodeAllocator(JdbcTemplate jdbcTemplate, @Value("${room.code.key:0x5DEECE66D}") String key) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        long seed = Long.decode(key);
+        for (int i = 0; i < ROUNDS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = (int) (mix(seed) >>> 32);
+        }
+    }
+
+    public synchronized String nextCode() {
+        if (next == blockEnd) {
+            Long block = jdbcTemplate.queryForObject("SELECT nextval('room_code_seq')", Long.class);
+            next = block * BLOCK_SIZE;
+            blockEnd = next + BLOCK_SIZE;
+        }
+
+        // After CODE_COUNT rooms the codes start over, the unique room_code still guards them
+        int index = (int) (next++ % CODE_COUNT);
+        return String.valueOf(FIRST_CODE + permute(index));
+    }
+
+    // Bijection on [0, CODE_COUNT): the 24-bit permutation is applied again until the value
+    // falls inside the range (cycle walking), on average less than two times
+    private int permute(int index) {
+        int value = index;
+        do {
+            value = feistel(value);
+        } while (value >= CODE_COUNT);
+        return value;
+    }
+
+    private int feistel(int value) {
+        int left = value >>> HALF_BITS;
+        int right = value & HALF_MASK;
+        for (int roundKey : roundKeys) {
+            int mixed = left ^ round(right, roundKey);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static int round(int half, int roundKey) {
+        int h = half * 0x9E3779B1 + roundKey;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & HALF_MASK;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
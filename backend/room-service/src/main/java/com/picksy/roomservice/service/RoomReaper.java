@@ -0,0 +1,155 @@
+package com.picksy.roomservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.picksy.RoomArchiveEvent;
+import com.picksy.roomservice.repository.RoomArchiveRepository;
+import com.picksy.roomservice.repository.RoomParticipantRepository;
+import com.picksy.roomservice.repository.RoomRepository;
+import com.picksy.roomservice.response.PollDTOResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Removes rooms that are closed or idle past their TTL, in chunks of one transaction each so
+// the room tables stay small. With the archive policy rooms that had voting are first copied
+// to room_archive, the rest is deleted. Decision-service is told to archive or drop the polls.
+@Service
+@Slf4j
+public class RoomReaper {
+
+    public static final String ARCHIVE_TOPIC = "room-archive-topic";
+
+    private final RoomRepository roomRepository;
+    private final RoomParticipantRepository participantRepository;
+    private final RoomArchiveRepository roomArchiveRepository;
+    private final RoomRegistry roomRegistry;
+    private final Cache<String, List<PollDTOResponse>> closedResultsCache;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration closedTtl;
+    private final Duration idleTtl;
+    private final int chunkSize;
+    private final int maxChunks;
+    private final boolean archive;
+
+    private final Counter archived;
+    private final Counter deleted;
+    private final Timer chunkTimer;
+    private final AtomicLong backlog = new AtomicLong();
+
+    public RoomReaper(RoomRepository roomRepository,
+                      RoomParticipantRepository participantRepository,
+                      RoomArchiveRepository roomArchiveRepository,
+                      RoomRegistry roomRegistry,
+                      Cache<String, List<PollDTOResponse>> closedResultsCache,
+                      KafkaTemplate<String, Object> kafkaTemplate,
+                      TransactionTemplate transactionTemplate,
+                      MeterRegistry meterRegistry,
+                      @Value("${room.reaper.closed-ttl-hours:24}") long closedTtlHours,
+                      @Value("${room.reaper.idle-ttl-hours:12}") long idleTtlHours,
+                      @Value("${room.reaper.chunk-size:500}") int chunkSize,
+                      @Value("${room.reaper.max-chunks:20}") int maxChunks,
+                      @Value("${room.reaper.policy:archive}") String policy) {
+        this.roomRepository = roomRepository;
+        this.participantRepository = participantRepository;
+        this.roomArchiveRepository = roomArchiveRepository;
+        this.roomRegistry = roomRegistry;
+        this.closedResultsCache = closedResultsCache;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.closedTtl = Duration.ofHours(closedTtlHours);
+        this.idleTtl = Duration.ofHours(idleTtlHours);
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+        this.archive = "archive".equalsIgnoreCase(policy);
+
+        this.archived = Counter.builder("room.reaper.rooms")
+                .description("Rooms removed by the reaper")
+                .tag("outcome", "archived")
+                .register(meterRegistry);
+        this.deleted = Counter.builder("room.reaper.rooms")
+                .description("Rooms removed by the reaper")
+                .tag("outcome", "deleted")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("room.reaper.chunk")
+                .description("Time to reap one chunk of rooms")
+                .register(meterRegistry);
+        Gauge.builder("room.reaper.backlog", backlog, AtomicLong::get)
+                .description("Rooms past their TTL at the end of the last run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${room.reaper.interval-ms:60000}")
+    public void reap() {
+        try {
+            // Bounded per run, a large backlog is worked off over several runs
+            for (int chunk = 0; chunk < maxChunks; chunk++) {
+                List<Reaped> reaped = chunkTimer.record(this::reapChunk);
+                reaped.forEach(this::announce);
+                if (reaped.size() < chunkSize) break;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            backlog.set(roomRepository.countReapable(now.minus(closedTtl), now.minus(idleTtl)));
+        } catch (RuntimeException e) {
+            // Rooms stay where they are, next run takes them
+            log.error("Reaping rooms failed: {}", e.getMessage());
+        }
+    }
+
+    private List<Reaped> reapChunk() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = roomRepository.lockReapable(now.minus(closedTtl), now.minus(idleTtl), chunkSize);
+            if (rows.isEmpty()) return List.of();
+
+            List<Long> roomIds = new ArrayList<>(rows.size());
+            List<Long> archivedIds = new ArrayList<>();
+            List<Reaped> reaped = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                Long roomId = ((Number) row[0]).longValue();
+                // Only rooms that had voting have results worth keeping
+                boolean keep = archive && Boolean.TRUE.equals(row[2]);
+                roomIds.add(roomId);
+                if (keep) archivedIds.add(roomId);
+                reaped.add(new Reaped((String) row[1], keep));
+            }
+
+            if (!archivedIds.isEmpty()) roomArchiveRepository.archive(archivedIds);
+            participantRepository.deleteByRoomIdIn(roomIds);
+            roomRepository.deleteCategoriesOf(roomIds);
+            roomRepository.deleteAllByIdIn(roomIds);
+
+            archived.increment(archivedIds.size());
+            deleted.increment(roomIds.size() - archivedIds.size());
+            return reaped;
+        });
+    }
+
+    // After the commit, the room is gone for good
+    private void announce(Reaped room) {
+        roomRegistry.evict(room.roomCode());
+        // Archived rooms keep their results, deleted ones have none
+        if (!room.archived()) closedResultsCache.invalidate(room.roomCode());
+        kafkaTemplate.send(
+                ARCHIVE_TOPIC,
+                room.roomCode(),
+                new RoomArchiveEvent(room.roomCode(), room.archived() ? "ARCHIVE" : "DELETE"));
+    }
+
+    private record Reaped(String roomCode, boolean archived) {}
+}
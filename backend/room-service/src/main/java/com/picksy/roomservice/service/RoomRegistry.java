@@ -0,0 +1,125 @@
+package com.picksy.roomservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.picksy.RoomArchiveEvent;
+import com.picksy.RoomMembershipEvent;
+import com.picksy.roomservice.model.Room;
+import com.picksy.roomservice.model.RoomView;
+import com.picksy.roomservice.repository.RoomParticipantRepository;
+import com.picksy.roomservice.repository.RoomRepository;
+import com.picksy.roomservice.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+// Active rooms by room code, reads of an active room cost no SQL. Every change is written to
+// the database first and replaces the cached room after its transaction commits. Other
+// instances drop the room when the change is announced on the membership topic and load it
+// again. Closed rooms are not kept, they are read from the database.
+@Service
+public class RoomRegistry {
+
+    private final RoomRepository roomRepository;
+    private final RoomParticipantRepository participantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, RoomView> rooms;
+
+    public RoomRegistry(RoomRepository roomRepository,
+                        RoomParticipantRepository participantRepository,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${room.registry.max-size:10000}") long maxSize,
+                        @Value("${room.registry.idle-minutes:120}") long idleMinutes) {
+        this.roomRepository = roomRepository;
+        this.participantRepository = participantRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.rooms = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+
+    public Optional<RoomView> find(String roomCode) {
+        // A change committed while the room loads waits for the load and replaces it
+        RoomView[] loaded = new RoomView[1];
+        RoomView cached = rooms.get(roomCode, code -> {
+            loaded[0] = load(code);
+            return loaded[0] == null || loaded[0].roomClosed() ? null : loaded[0];
+        });
+        if (cached != null) return Optional.of(cached);
+
+        // Missing or closed, nothing was cached
+        return Optional.ofNullable(loaded[0]);
+    }
+
+    // Only what is cached already, never reads the database
+    public Optional<RoomView> cached(String roomCode) {
+        return Optional.ofNullable(rooms.getIfPresent(roomCode));
+    }
+
+    // A room created in the current transaction, nobody has joined it yet
+    public void put(Room room) {
+        RoomView view = RoomView.from(room, List.of());
+        AfterCommit.run(() -> rooms.put(view.roomCode(), view));
+    }
+
+    // Write-through: the room as saved in the current transaction, participants are kept
+    public void update(Room room) {
+        RoomView changed = RoomView.from(room, List.of());
+        AfterCommit.run(() -> {
+            if (changed.roomClosed()) {
+                rooms.invalidate(changed.roomCode());
+            } else {
+                rooms.asMap().computeIfPresent(
+                        changed.roomCode(), (code, cached) -> changed.withParticipants(cached.participants()));
+            }
+        });
+    }
+
+    public void addParticipant(String roomCode, Long userId, String username) {
+        AfterCommit.run(() -> rooms.asMap().computeIfPresent(
+                roomCode, (code, cached) -> cached.withParticipant(userId, username)));
+    }
+
+    public void removeParticipant(String roomCode, Long userId) {
+        AfterCommit.run(() -> rooms.asMap().computeIfPresent(
+                roomCode, (code, cached) -> cached.withoutParticipant(userId)));
+    }
+
+    public void evict(String roomCode) {
+        AfterCommit.run(() -> rooms.invalidate(roomCode));
+    }
+
+    public void evictAll() {
+        AfterCommit.run(rooms::invalidateAll);
+    }
+
+    // Every instance needs all events, so each one consumes with its own group
+    @KafkaListener(
+            topics = RoomService.MEMBERSHIP_TOPIC,
+            groupId = "room-registry-#{T(java.util.UUID).randomUUID()}",
+            properties = "auto.offset.reset=latest")
+    public void onMembership(RoomMembershipEvent event) {
+        rooms.invalidate(event.getRoomCode());
+    }
+
+    @KafkaListener(
+            topics = RoomReaper.ARCHIVE_TOPIC,
+            groupId = "room-registry-archive-#{T(java.util.UUID).randomUUID()}",
+            properties = "auto.offset.reset=latest")
+    public void onArchive(RoomArchiveEvent event) {
+        rooms.invalidate(event.getRoomCode());
+    }
+
+    private RoomView load(String roomCode) {
+        // Collections are lazy, they are copied inside the transaction
+        return transactionTemplate.execute(status -> roomRepository.findByRoomCode(roomCode)
+                .map(room -> RoomView.from(room, participantRepository.findByRoomId(room.getId())))
+                .orElse(null));
+    }
+}
@@ -1,20 +1,35 @@
 package com.picksy.roomservice.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.picksy.RoomMembershipEvent;
 import com.picksy.roomservice.message.RoomMessage;
 import com.picksy.roomservice.model.PollDTO;
 import com.picksy.roomservice.model.Room;
+import com.picksy.roomservice.model.RoomArchive;
+import com.picksy.roomservice.model.RoomParticipant;
+import com.picksy.roomservice.model.RoomView;
 import com.picksy.roomservice.model.SetCategoryKey;
+import com.picksy.roomservice.repository.RoomArchiveRepository;
+import com.picksy.roomservice.repository.RoomHistoryRow;
+import com.picksy.roomservice.repository.RoomParticipantRepository;
 import com.picksy.roomservice.repository.RoomRepository;
+import com.picksy.roomservice.request.MembershipBatchRequest;
 import com.picksy.roomservice.request.RoomCreateRequest;
 import com.picksy.roomservice.request.RoomUserInfo;
+import com.picksy.roomservice.response.HistoryPage;
 import com.picksy.roomservice.response.PollDTOResponse;
 import com.picksy.roomservice.response.RoomDTO;
+import com.picksy.roomservice.response.RoomSummary;
+import com.picksy.roomservice.util.AfterCommit;
+import com.picksy.roomservice.util.HistoryCursor;
 import com.picksy.roomservice.util.MessageType;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.apache.coyote.BadRequestException;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -26,15 +41,25 @@ import java.util.concurrent.ThreadLocalRandom;
 public class RoomService {
 
   private final RoomRepository roomRepository;
-  private final SimpMessageSendingOperations messagingTemplate;
+  private final RoomParticipantRepository participantRepository;
+  private final RoomArchiveRepository roomArchiveRepository;
+  private final RoomRegistry roomRegistry;
+  private final RoomCodeAllocator roomCodeAllocator;
+  private final Cache<String, List<PollDTOResponse>> closedResultsCache;
+  private final BrokerFanout brokerFanout;
   private final DecisionClient decisionClient;
+  private final KafkaTemplate<String, Object> kafkaTemplate;
+
+  public static final String MEMBERSHIP_TOPIC = "room-membership-topic";
+  private static final int MAX_HISTORY_PAGE = 100;
+  private static final int MAX_MEMBERSHIP_BATCH = 5000;
 
   @Transactional
   public RoomDTO createRoom(RoomCreateRequest request, Long userId) {
     Room newRoom =
         Room.builder()
             .name(request.name())
-            .roomCode(generateUniqueRoomCode())
+            .roomCode(roomCodeAllocator.nextCode())
             .ownerId(userId)
             .categorySet(request.categories())
             .votingStarted(false)
@@ -43,23 +68,30 @@ public class RoomService {
             .build();
 
     roomRepository.save(newRoom);
+    roomRegistry.put(newRoom);
 
-    return mapToDTO(newRoom);
+    return mapToDTO(RoomView.from(newRoom, List.of()));
   }
 
   @Transactional
   public void deleteRoom(String roomCode) throws BadRequestException {
     Optional<Room> room = roomRepository.findByRoomCode(roomCode);
     if (room.isEmpty()) throw new BadRequestException("Room does not exist");
+    participantRepository.deleteByRoomId(room.get().getId());
     roomRepository.delete(room.get());
+    roomRegistry.evict(roomCode);
+    closedResultsCache.invalidate(roomCode);
+    publishMembership(roomCode, null, "CLOSE");
   }
 
   @Transactional
   public void markRoomAsClosed(String roomCode) throws BadRequestException {
     Optional<Room> room = roomRepository.findByRoomCode(roomCode);
     if (room.isEmpty()) throw new BadRequestException("Room does not exist");
-    room.get().setRoomClosed(true);
+    room.get().close();
     roomRepository.save(room.get());
+    roomRegistry.update(room.get());
+    publishMembership(roomCode, null, "CLOSE");
   }
 
   @Transactional
@@ -71,11 +103,13 @@ public class RoomService {
     if (!Objects.equals(room.get().getOwnerId(), ownerId))
       throw new BadRequestException("You have to be room owner to close the room.");
 
-    room.get().setRoomClosed(true);
+    room.get().close();
 
     roomRepository.save(room.get());
+    roomRegistry.update(room.get());
+    publishMembership(roomCode, null, "CLOSE");
 
-    messagingTemplate.convertAndSend(
+    brokerFanout.publish(
         "/topic/room/" + roomCode,
         new RoomMessage(MessageType.ROOM_CLOSED, room.get().getOwnerId(), null, null));
   }
@@ -92,7 +126,7 @@ public class RoomService {
 
     int currentCategoryIndex = room.get().getCurrentCategoryIndex();
 
-    messagingTemplate.convertAndSend(
+    brokerFanout.publish(
         "/topic/room/" + roomCode,
         new RoomMessage(
             MessageType.VOTING_STARTED,
@@ -102,6 +136,8 @@ public class RoomService {
 
     room.get().setCurrentCategoryIndex(currentCategoryIndex);
     roomRepository.save(room.get());
+    roomRegistry.update(room.get());
+    publishMembership(roomCode, null, "UPDATE");
   }
 
   @Transactional
@@ -120,28 +156,32 @@ public class RoomService {
 
     if (currentCategoryIndex >= room.get().getCategorySet().size()) {
       type = MessageType.VOTING_FINISHED;
-      room.get().setRoomClosed(true);
+      room.get().close();
     } else {
       category = room.get().getCategorySet().get(currentCategoryIndex);
     }
 
-    messagingTemplate.convertAndSend(
+    brokerFanout.publish(
         "/topic/room/" + roomCode, new RoomMessage(type, room.get().getOwnerId(), null, category));
 
     room.get().setCurrentCategoryIndex(currentCategoryIndex);
     roomRepository.save(room.get());
+    roomRegistry.update(room.get());
+
+    publishMembership(roomCode, null, room.get().isRoomClosed() ? "CLOSE" : "UPDATE");
   }
 
+  // Only the participant's row is written, concurrent joins to a room do not wait on each other
   @Transactional
   public Long joinRoom(String roomCode, RoomUserInfo userInfo) throws BadRequestException {
-    Optional<Room> optionalRoom = roomRepository.findByRoomCode(roomCode);
+    Optional<RoomView> optionalRoom = roomRegistry.find(roomCode);
 
     if (optionalRoom.isEmpty()) throw new BadRequestException("Room does not exist");
 
-    Room room = optionalRoom.get();
+    RoomView room = optionalRoom.get();
 
-    if (room.isRoomClosed()) throw new BadRequestException("Room is closed.");
-    if (room.isVotingStarted()) throw new BadRequestException("Voting has already started.");
+    if (room.roomClosed()) throw new BadRequestException("Room is closed.");
+    if (room.votingStarted()) throw new BadRequestException("Voting has already started.");
 
     Long userId = userInfo.userId();
 
@@ -150,102 +190,156 @@ public class RoomService {
         long maxSafeJS = 9007199254740991L;
       do {
           userId = -ThreadLocalRandom.current().nextLong(1, maxSafeJS);
-      } while (room.getParticipants().containsKey(userId));
+      } while (participantRepository.insertIfAbsent(room.id(), userId, userInfo.username()) == 0);
     } else {
-      if (room.getParticipants().containsKey(userId)) {
+      if (participantRepository.insertIfAbsent(room.id(), userId, userInfo.username()) == 0) {
         throw new BadRequestException("You have already joined this room.");
       }
     }
 
-    Map.Entry<Long, String> newParticipant = room.addParticipant(userId, userInfo.username());
+    roomRegistry.addParticipant(roomCode, userId, userInfo.username());
+    publishMembership(roomCode, userId, "JOIN");
 
-    roomRepository.save(room);
-
-    messagingTemplate.convertAndSend(
+    brokerFanout.publish(
         "/topic/room/" + roomCode,
-        new RoomMessage(
-            MessageType.JOIN, newParticipant.getKey(), newParticipant.getValue(), null));
+        new RoomMessage(MessageType.JOIN, userId, userInfo.username(), null));
 
-    return newParticipant.getKey();
+    return userId;
   }
 
   public RoomDTO getRoomDetails(String roomCode) throws BadRequestException {
-    Optional<Room> room = roomRepository.findByRoomCode(roomCode);
+    Optional<RoomView> room = roomRegistry.find(roomCode);
     if (room.isEmpty()) throw new BadRequestException("Room does not exist");
     return mapToDTO(room.get());
   }
 
-  private String generateUniqueRoomCode() {
-    String code;
-    do {
-      int number = (int) (Math.random() * 9000000) + 1000000;
-      code = String.valueOf(number);
-    } while (roomRepository.existsByRoomCode(code));
-    return code;
-  }
-
   @Transactional
   public void leaveRoom(String roomCode, RoomUserInfo userInfo) throws BadRequestException {
-    Optional<Room> optionalRoom = roomRepository.findByRoomCode(roomCode);
+    Optional<RoomView> optionalRoom = roomRegistry.find(roomCode);
 
     if (optionalRoom.isEmpty()) throw new BadRequestException("Room does not exist");
 
-    Room room = optionalRoom.get();
-
-    if (!room.getParticipants().containsKey(userInfo.userId())) {
-      throw new BadRequestException("You have not joined this room.");
-    }
+    RoomView room = optionalRoom.get();
 
     // When owner exits before end
-    if (Objects.equals(userInfo.userId(), room.getOwnerId())) {
-      messagingTemplate.convertAndSend(
+    if (Objects.equals(userInfo.userId(), room.ownerId())) {
+      if (!room.isParticipant(userInfo.userId())) {
+        throw new BadRequestException("You have not joined this room.");
+      }
+
+      brokerFanout.publish(
           "/topic/room/" + roomCode,
-          new RoomMessage(MessageType.ROOM_CLOSED, room.getOwnerId(), null, null));
+          new RoomMessage(MessageType.ROOM_CLOSED, room.ownerId(), null, null));
 
       markRoomAsClosed(roomCode);
       return;
     }
 
-    room.removeParticipant(userInfo.userId());
-    roomRepository.save(room);
+    if (participantRepository.deleteParticipant(room.id(), userInfo.userId()) == 0) {
+      throw new BadRequestException("You have not joined this room.");
+    }
 
-    messagingTemplate.convertAndSend(
-        "/topic/room/" + roomCode,
-        new RoomMessage(MessageType.LEAVE, userInfo.userId(), null, null));
+    announceLeave(roomCode, userInfo.userId());
+  }
+
+  // Binds the user's WebSocket session to their participant row, false when they are not a
+  // participant of an open room
+  @Transactional
+  public boolean attachSession(String roomCode, Long userId, String sessionId) {
+    Optional<RoomView> room = roomRegistry.find(roomCode);
+    if (room.isEmpty() || room.get().roomClosed()) return false;
+    return participantRepository.attachSession(room.get().id(), userId, sessionId) > 0;
   }
 
+  // Presence of the session timed out, the user leaves unless they have left already or
+  // connected again since
   @Transactional
+  public void expireParticipant(String roomCode, Long userId, String sessionId) {
+    Optional<RoomView> optionalRoom = roomRegistry.find(roomCode);
+    if (optionalRoom.isEmpty()) return;
+
+    RoomView room = optionalRoom.get();
+    // The owner leaving closes the room, a lost connection should not
+    if (room.roomClosed() || Objects.equals(userId, room.ownerId())) return;
+
+    if (participantRepository.deleteIfSession(room.id(), userId, sessionId) == 0) return;
+
+    announceLeave(roomCode, userId);
+  }
+
+  private void announceLeave(String roomCode, Long userId) {
+    roomRegistry.removeParticipant(roomCode, userId);
+    publishMembership(roomCode, userId, "LEAVE");
+
+    brokerFanout.publish(
+        "/topic/room/" + roomCode, new RoomMessage(MessageType.LEAVE, userId, null, null));
+  }
+
   public void endVoting(String roomCode, Long ownerId) throws BadRequestException {
-    Optional<Room> room = roomRepository.findByRoomCode(roomCode);
+    Optional<RoomView> room = roomRegistry.find(roomCode);
 
     if (room.isEmpty()) throw new BadRequestException("Room does not exist");
-    if (!Objects.equals(room.get().getOwnerId(), ownerId))
+    if (!Objects.equals(room.get().ownerId(), ownerId))
       throw new BadRequestException("You have to be room owner to change voting category.");
 
-    if (room.get().isRoomClosed()) throw new BadRequestException("Room is closed.");
-    if (!room.get().isVotingStarted()) throw new BadRequestException("Voting hasn't started.");
+    if (room.get().roomClosed()) throw new BadRequestException("Room is closed.");
+    if (!room.get().votingStarted()) throw new BadRequestException("Voting hasn't started.");
 
-    messagingTemplate.convertAndSend(
+    brokerFanout.publish(
         "/topic/room/" + roomCode, new RoomMessage(MessageType.VOTING_FINISHED, null, null, null));
   }
 
-  public List<PollDTOResponse> getPolls(String roomCode) throws BadRequestException {
-    // Get polls from decision service using synchronous communication (block)
-    List<PollDTO> pollDTOS = decisionClient.getResults(roomCode).collectList().block();
+  // Categories and polls are fetched in parallel without holding a request thread,
+  // frozen results of closed rooms are served from the cache
+  public Mono<List<PollDTOResponse>> getPolls(String roomCode) {
+    List<PollDTOResponse> cached = closedResultsCache.getIfPresent(roomCode);
+    if (cached != null) return Mono.just(cached);
+
+    // The registry may read the database, kept off the event loop
+    Mono<RoomCategories> room =
+        Mono.fromCallable(() -> roomCategories(roomCode)).subscribeOn(Schedulers.boundedElastic());
+    Mono<List<PollDTO>> polls = decisionClient.getResults(roomCode).collectList();
+
+    return Mono.zip(room, polls)
+        .map(
+            tuple -> {
+              List<PollDTOResponse> responses = joinPolls(tuple.getT1().categories(), tuple.getT2());
+              // The instance that answered may not have frozen the polls yet, only final
+              // results are kept
+              if (tuple.getT1().closed() && allFrozen(tuple.getT2()))
+                closedResultsCache.put(roomCode, responses);
+              return responses;
+            });
+  }
+
+  private static boolean allFrozen(List<PollDTO> polls) {
+    return !polls.isEmpty() && polls.stream().allMatch(PollDTO::frozen);
+  }
+
+  private RoomCategories roomCategories(String roomCode) {
+    Optional<RoomView> room = roomRegistry.find(roomCode);
+    if (room.isPresent()) return new RoomCategories(room.get().categories(), room.get().roomClosed());
+
+    // Rooms taken by the reaper are closed for good
+    return roomArchiveRepository
+        .findByRoomCode(roomCode)
+        .map(archived -> new RoomCategories(archived.getCategories(), true))
+        .orElse(new RoomCategories(List.of(), false));
+  }
 
-    // Get category ids from room service
-    List<SetCategoryKey> categories = roomRepository.findAllSetCategoriesByRoomCode(roomCode);
+  // One pass over the polls, then one lookup per category
+  private List<PollDTOResponse> joinPolls(List<SetCategoryKey> categories, List<PollDTO> polls) {
+    Map<Long, PollDTO> pollsByCategory = new HashMap<>(polls.size() * 2);
+    for (PollDTO poll : polls) {
+      pollsByCategory.putIfAbsent(poll.categoryId(), poll);
+    }
 
-    List<PollDTOResponse> pollDTOResponses = new ArrayList<>();
+    List<PollDTOResponse> pollDTOResponses = new ArrayList<>(categories.size());
 
     for (SetCategoryKey categorySet : categories) {
-      // Check if a poll with this categoryId exists in the results
-      List<PollDTO> pollDTOs =
-          pollDTOS.stream()
-              .filter(p -> p.categoryId().equals(categorySet.getCategoryId()))
-              .toList();
+      PollDTO pollDTO = pollsByCategory.get(categorySet.getCategoryId());
 
-      if (pollDTOs.isEmpty()) {
+      if (pollDTO == null) {
         // Create an empty PollDTO for a category that has no voting data
         pollDTOResponses.add(
             new PollDTOResponse(
@@ -254,42 +348,156 @@ public class RoomService {
                 null, // or an empty list,
                 0));
       } else {
-        PollDTO pollDTO = pollDTOs.getFirst();
         pollDTOResponses.add(
             new PollDTOResponse(
                 pollDTO.pollId(), categorySet, pollDTO.choices(), pollDTO.participantsCount()));
       }
     }
-    return pollDTOResponses;
+    return List.copyOf(pollDTOResponses);
   }
 
+  private record RoomCategories(List<SetCategoryKey> categories, boolean closed) {}
+
   public int getParticipantsCount(String roomCode) throws BadRequestException {
-    if (!roomRepository.existsByRoomCode(roomCode))
-      throw new BadRequestException("Room does not exist.");
-    return roomRepository.getParticipantsCountByRoomCode(roomCode);
+    Optional<RoomView> room = roomRegistry.find(roomCode);
+    if (room.isEmpty()) throw new BadRequestException("Room does not exist.");
+    return room.get().participantCount();
   }
 
-  public List<RoomDTO> getAllClosedRoomsForUser(Long userId) throws BadRequestException {
-    List<Room> rooms = roomRepository.findAllClosedByParticipant(userId);
-    System.out.println("rooms: " + rooms);
-    return rooms.stream().map(this::mapToDTO).toList();
+  // Keyset pagination on (created_at, id), every page costs the same however long the history is
+  public HistoryPage getHistory(Long userId, String cursor, int limit, boolean expand)
+      throws BadRequestException {
+    int size = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE));
+
+    HistoryCursor after;
+    try {
+      after = cursor == null || cursor.isBlank() ? HistoryCursor.FIRST : HistoryCursor.decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+
+    // One row more tells whether there is a next page
+    List<RoomHistoryRow> rows =
+        roomRepository.findHistoryPage(userId, after.createdAt(), after.id(), size + 1);
+    boolean more = rows.size() > size;
+    if (more) rows = rows.subList(0, size);
+
+    Map<Long, Map<Long, String>> participants = new HashMap<>();
+    Map<Long, List<SetCategoryKey>> categories = new HashMap<>();
+    if (expand) expandHistory(rows, participants, categories);
+
+    List<RoomSummary> rooms =
+        rows.stream()
+            .map(
+                row ->
+                    new RoomSummary(
+                        row.getRoomCode(),
+                        row.getName(),
+                        row.getOwnerId(),
+                        row.getCreatedAt(),
+                        row.getParticipantCount(),
+                        expand ? participants.getOrDefault(row.getId(), Map.of()) : null,
+                        expand ? categories.getOrDefault(row.getId(), List.of()) : null))
+            .toList();
+
+    String nextCursor = null;
+    if (more) {
+      RoomHistoryRow last = rows.getLast();
+      nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+    }
+    return new HistoryPage(rooms, nextCursor);
   }
 
-  private RoomDTO mapToDTO(Room room) {
+  // Details of a whole page with one query per table
+  private void expandHistory(
+      List<RoomHistoryRow> rows,
+      Map<Long, Map<Long, String>> participants,
+      Map<Long, List<SetCategoryKey>> categories) {
+    List<Long> liveIds = rows.stream().filter(row -> !row.getArchived()).map(RoomHistoryRow::getId).toList();
+    List<Long> archivedIds = rows.stream().filter(RoomHistoryRow::getArchived).map(RoomHistoryRow::getId).toList();
+
+    if (!liveIds.isEmpty()) {
+      for (RoomParticipant participant : participantRepository.findByRoomIdIn(liveIds)) {
+        participants
+            .computeIfAbsent(participant.getRoomId(), id -> new LinkedHashMap<>())
+            .put(participant.getUserId(), participant.getUsername());
+      }
+      for (Object[] row : roomRepository.findCategoriesOf(liveIds)) {
+        categories
+            .computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+            .add(new SetCategoryKey(((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+      }
+    }
+
+    if (!archivedIds.isEmpty()) {
+      for (RoomArchive archived : roomArchiveRepository.findAllById(archivedIds)) {
+        participants.put(archived.getId(), archived.getParticipants());
+        categories.put(archived.getId(), archived.getCategories());
+      }
+    }
+  }
+
+  // Keyed by room code, so events of one room stay ordered
+  // Only committed changes are announced, decision-service must not admit a join rolled back
+  private void publishMembership(String roomCode, Long userId, String type) {
+    AfterCommit.run(
+        () ->
+            kafkaTemplate.send(
+                MEMBERSHIP_TOPIC, roomCode, new RoomMembershipEvent(roomCode, userId, type)));
+  }
+
+  private RoomDTO mapToDTO(RoomView room) {
     return new RoomDTO(
-        room.getRoomCode(),
-        room.getName(),
-        room.getCategorySet(),
-        room.isVotingStarted(),
-        room.isRoomClosed(),
-        room.getParticipants(),
-        room.getOwnerId(),
-        room.getCreatedAt());
+        room.roomCode(),
+        room.name(),
+        room.categories(),
+        room.votingStarted(),
+        room.roomClosed(),
+        room.participants(),
+        room.ownerId(),
+        room.createdAt());
   }
 
   public Boolean isParticipant(String roomCode, Long userId) {
-    if (!roomRepository.existsByRoomCode(roomCode)) return false;
-    System.out.println("user id: " + userId);
-    return roomRepository.existsParticipantInRoom(roomCode, userId);
+    return roomRegistry.find(roomCode).map(room -> room.isParticipant(userId)).orElse(false);
+  }
+
+  // Returns, for every room asked about, the given users that are its participants. Rooms in the
+  // registry are answered from memory, all other pairs with one query.
+  public Map<String, List<Long>> findParticipants(MembershipBatchRequest request)
+      throws BadRequestException {
+    Map<String, List<Long>> rooms = request.rooms() != null ? request.rooms() : Map.of();
+    long pairs = rooms.values().stream().filter(Objects::nonNull).mapToLong(List::size).sum();
+    if (pairs > MAX_MEMBERSHIP_BATCH)
+      throw new BadRequestException("At most " + MAX_MEMBERSHIP_BATCH + " users can be checked at once.");
+
+    Map<String, List<Long>> participants = new HashMap<>();
+    List<String> roomCodes = new ArrayList<>();
+    List<Long> userIds = new ArrayList<>();
+
+    rooms.forEach(
+        (roomCode, users) -> {
+          List<Long> asked =
+              users != null ? users.stream().filter(Objects::nonNull).distinct().toList() : List.of();
+          Optional<RoomView> cached = roomRegistry.cached(roomCode);
+          if (cached.isPresent()) {
+            participants.put(roomCode, asked.stream().filter(cached.get()::isParticipant).toList());
+            return;
+          }
+
+          participants.put(roomCode, new ArrayList<>());
+          asked.forEach(
+              userId -> {
+                roomCodes.add(roomCode);
+                userIds.add(userId);
+              });
+        });
+
+    if (!roomCodes.isEmpty()) {
+      for (Object[] row : participantRepository.findMembers(roomCodes, userIds)) {
+        participants.get((String) row[0]).add(((Number) row[1]).longValue());
+      }
+    }
+    return participants;
   }
 }
@@ -0,0 +1,59 @@
+package com.picksy.roomservice.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Timer for a large number of deadlines. Time is cut into ticks and a deadline goes to the
+// bucket of its tick, modulo the wheel size, so scheduling is O(1) and a tick only looks at its
+// own bucket. Deadlines more than one lap away stay in the bucket until their lap comes.
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final ArrayDeque<Entry<T>>[] buckets;
+
+    // Next tick to look at
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int size, long startMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Tick must be positive");
+        if (size <= 0 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = size - 1;
+        this.buckets = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) buckets[i] = new ArrayDeque<>();
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        // Rounded up so nothing comes out early, a deadline in the past goes to the next tick
+        long tick = Math.max(Math.ceilDiv(deadlineMillis - startMillis, tickMillis), currentTick);
+        buckets[(int) (tick & mask)].add(new Entry<>(item, tick));
+    }
+
+    // Removes and returns the items due up to nowMillis, in deadline order by tick
+    public synchronized List<T> advance(long nowMillis) {
+        long lastTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        List<T> due = new ArrayList<>();
+
+        for (; currentTick <= lastTick; currentTick++) {
+            Iterator<Entry<T>> entries = buckets[(int) (currentTick & mask)].iterator();
+            while (entries.hasNext()) {
+                Entry<T> entry = entries.next();
+                if (entry.tick() <= currentTick) {
+                    entries.remove();
+                    due.add(entry.item());
+                }
+            }
+        }
+        return due;
+    }
+
+    private record Entry<T>(T item, long tick) {}
+}
@@ -0,0 +1,5 @@
+-- Room codes, reserved by RoomCodeAllocator in blocks. Outlives the tables, codes are never reused.
+CREATE SEQUENCE IF NOT EXISTS room_code_seq;
+
+-- History lookups of archived rooms by participant
+CREATE INDEX IF NOT EXISTS idx_room_archive_participants ON room_archive USING gin (participant_ids);
@@ -0,0 +1,97 @@
+package com.picksy.roomservice;
+
+import com.picksy.roomservice.util.HashedTimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashedTimingWheelTests {
+
+    private static final long TICK = 100;
+
+    @Test
+    void itemComesDueAtItsTickAndNotBefore() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 8, 0);
+
+        // Rounded up to the tick at 300
+        wheel.schedule("a", 250);
+
+        assertThat(wheel.advance(299)).isEmpty();
+        assertThat(wheel.advance(300)).containsExactly("a");
+        assertThat(wheel.advance(10_000)).isEmpty();
+    }
+
+    @Test
+    void deadlinesManyLapsAwayWaitForTheirLap() {
+        // 4 buckets of 100 ms, the deadline is 10 laps and 2 ticks away
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 4, 0);
+        wheel.schedule("far", 4_200);
+        // Same bucket, first lap
+        wheel.schedule("near", 200);
+
+        List<String> due = new ArrayList<>();
+        for (long now = 0; now < 4_200; now += 10) {
+            due.addAll(wheel.advance(now));
+            if (now < 200) assertThat(due).isEmpty();
+        }
+        assertThat(due).containsExactly("near");
+
+        assertThat(wheel.advance(4_200)).containsExactly("far");
+    }
+
+    @Test
+    void largeJumpReturnsEverythingDueInTickOrder() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 4, 0);
+        wheel.schedule("c", 900);
+        wheel.schedule("b", 500);
+        wheel.schedule("a", 200);
+        wheel.schedule("later", 1_300);
+
+        assertThat(wheel.advance(1_000)).containsExactly("a", "b", "c");
+        assertThat(wheel.advance(1_300)).containsExactly("later");
+    }
+
+    @Test
+    void pastDeadlineComesDueOnTheNextTick() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 8, 0);
+        assertThat(wheel.advance(1_000)).isEmpty();
+
+        wheel.schedule("late", 200);
+
+        assertThat(wheel.advance(1_099)).isEmpty();
+        assertThat(wheel.advance(1_100)).containsExactly("late");
+    }
+
+    @Test
+    void rescheduledItemComesDueAtEachDeadline() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 4, 0);
+        wheel.schedule("presence", 300);
+
+        assertThat(wheel.advance(300)).containsExactly("presence");
+        wheel.schedule("presence", 1_900);
+
+        assertThat(wheel.advance(1_899)).isEmpty();
+        assertThat(wheel.advance(1_900)).containsExactly("presence");
+    }
+
+    @Test
+    void startIsTheOriginOfTicks() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 8, 1_000_050);
+        wheel.schedule("a", 1_000_250);
+
+        assertThat(wheel.advance(1_000_249)).isEmpty();
+        assertThat(wheel.advance(1_000_250)).containsExactly("a");
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThatThrownBy(() -> new HashedTimingWheel<String>(0, 8, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HashedTimingWheel<String>(TICK, 6, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
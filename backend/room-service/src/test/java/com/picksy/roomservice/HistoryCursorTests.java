@@ -0,0 +1,58 @@
+package com.picksy.roomservice;
+
+import com.picksy.roomservice.util.HistoryCursor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTests {
+
+    @Test
+    void roundTripKeepsPosition() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000), 42L);
+
+        assertThat(HistoryCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripOfWholeSecondsAndLargeIds() {
+        // LocalDateTime drops zero seconds from its text form, parsing must still accept it
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2025, 1, 1, 0, 0), Long.MAX_VALUE);
+
+        assertThat(HistoryCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void firstPageCursorRoundTrips() {
+        assertThat(HistoryCursor.decode(HistoryCursor.FIRST.encode())).isEqualTo(HistoryCursor.FIRST);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new HistoryCursor(LocalDateTime.of(2025, 6, 30, 23, 59, 59, 999_999_999), 1L).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void decodeRejectsMalformedCursors() {
+        assertThatThrownBy(() -> HistoryCursor.decode("not base64!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid history cursor");
+        assertThatThrownBy(() -> HistoryCursor.decode(encoded("2025-01-01T00:00")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HistoryCursor.decode(encoded("yesterday_12")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HistoryCursor.decode(encoded("2025-01-01T00:00_x")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String encoded(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
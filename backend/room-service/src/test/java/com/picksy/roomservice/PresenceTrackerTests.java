@@ -0,0 +1,189 @@
+package com.picksy.roomservice;
+
+import com.picksy.roomservice.service.PresenceTracker;
+import com.picksy.roomservice.service.RoomService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PresenceTrackerTests {
+
+    private static final String ROOM = "1000001";
+    private static final long USER = 7L;
+    private static final long TIMEOUT = 30_000;
+    private static final long TICK = 1_000;
+    // Far smaller than the timeout, a presence goes around the wheel several times
+    private static final int WHEEL_SIZE = 8;
+
+    private RoomService roomService;
+    private SimpleMeterRegistry meterRegistry;
+    private long now;
+    private PresenceTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        roomService = mock(RoomService.class);
+        when(roomService.attachSession(anyString(), anyLong(), anyString())).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+        now = 0;
+        tracker = new PresenceTracker(roomService, meterRegistry, TIMEOUT, TICK, WHEEL_SIZE, () -> now);
+    }
+
+    @Test
+    void silentParticipantExpiresAtTheTimeoutAndNotBefore() {
+        tracker.onConnect(connect("s1", ROOM, "7"));
+
+        runUntil(TIMEOUT - 1);
+        verify(roomService, never()).expireParticipant(anyString(), anyLong(), anyString());
+
+        runUntil(TIMEOUT);
+        verify(roomService).expireParticipant(ROOM, USER, "s1");
+        assertThat(meterRegistry.counter("room.presence.expired").count()).isEqualTo(1);
+    }
+
+    @Test
+    void framesOfTheSessionMoveTheDeadline() {
+        tracker.onConnect(connect("s1", ROOM, "7"));
+
+        // Deadline moves to 50 s, the entry due at 30 s is scheduled again
+        runUntil(20_000);
+        tracker.preSend(frame("s1"), mock(MessageChannel.class));
+
+        runUntil(20_000 + TIMEOUT - 1);
+        verify(roomService, never()).expireParticipant(anyString(), anyLong(), anyString());
+
+        runUntil(20_000 + TIMEOUT);
+        verify(roomService).expireParticipant(ROOM, USER, "s1");
+    }
+
+    @Test
+    void regularHeartbeatsKeepTheParticipant() {
+        tracker.onConnect(connect("s1", ROOM, "7"));
+
+        for (long heartbeat = 10_000; heartbeat <= 300_000; heartbeat += 10_000) {
+            runUntil(heartbeat);
+            tracker.preSend(frame("s1"), mock(MessageChannel.class));
+        }
+
+        verify(roomService, never()).expireParticipant(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void reconnectBeforeTheTimeoutKeepsThePresence() {
+        tracker.onConnect(connect("s1", ROOM, "7"));
+        runUntil(5_000);
+        tracker.onDisconnect(disconnect("s1"));
+
+        // Page reload, frames of the old session do not count anymore
+        runUntil(8_000);
+        tracker.onConnect(connect("s2", ROOM, "7"));
+        tracker.preSend(frame("s1"), mock(MessageChannel.class));
+
+        runUntil(8_000 + TIMEOUT - 1);
+        verify(roomService, never()).expireParticipant(anyString(), anyLong(), anyString());
+
+        runUntil(8_000 + TIMEOUT);
+        verify(roomService).expireParticipant(ROOM, USER, "s2");
+    }
+
+    @Test
+    void disconnectedSessionIsNotRefreshed() {
+        tracker.onConnect(connect("s1", ROOM, "7"));
+        tracker.onDisconnect(disconnect("s1"));
+
+        runUntil(20_000);
+        tracker.preSend(frame("s1"), mock(MessageChannel.class));
+
+        runUntil(TIMEOUT);
+        verify(roomService).expireParticipant(ROOM, USER, "s1");
+    }
+
+    @Test
+    void sessionsWithoutParticipantHeadersAreNotTracked() {
+        tracker.onConnect(connect("s1", ROOM, null));
+        tracker.onConnect(connect("s2", null, "7"));
+        tracker.onConnect(connect("s3", ROOM, "not a number"));
+
+        runUntil(10 * TIMEOUT);
+
+        verifyNoInteractions(roomService);
+    }
+
+    @Test
+    void sessionOfANonParticipantIsNotTracked() {
+        when(roomService.attachSession(ROOM, USER, "s1")).thenReturn(false);
+
+        tracker.onConnect(connect("s1", ROOM, "7"));
+        runUntil(10 * TIMEOUT);
+
+        verify(roomService, never()).expireParticipant(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void failedExpiryIsNotCounted() {
+        doThrow(new IllegalStateException("db down")).when(roomService).expireParticipant(any(), any(), any());
+
+        tracker.onConnect(connect("s1", ROOM, "7"));
+        runUntil(TIMEOUT);
+
+        verify(roomService).expireParticipant(ROOM, USER, "s1");
+        assertThat(meterRegistry.counter("room.presence.expired").count()).isZero();
+    }
+
+    // Ticks every TICK ms like the scheduler would, up to and including until
+    private void runUntil(long until) {
+        while (now + TICK <= until) {
+            now += TICK;
+            tracker.tick();
+        }
+        if (now < until) {
+            now = until;
+            tracker.tick();
+        }
+    }
+
+    private static SessionConnectEvent connect(String sessionId, String roomCode, String userId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        if (roomCode != null) accessor.addNativeHeader(PresenceTracker.ROOM_CODE_HEADER, roomCode);
+        if (userId != null) accessor.addNativeHeader(PresenceTracker.USER_ID_HEADER, userId);
+        return new SessionConnectEvent(
+                PresenceTrackerTests.class, MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private static SessionDisconnectEvent disconnect(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        accessor.setSessionId(sessionId);
+        return new SessionDisconnectEvent(
+                PresenceTrackerTests.class,
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()),
+                sessionId,
+                CloseStatus.NORMAL);
+    }
+
+    private static Message<byte[]> frame(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,99 @@
+package com.picksy.roomservice;
+
+import com.picksy.roomservice.service.RoomCodeAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoomCodeAllocatorTests {
+
+    private static final int FIRST_CODE = 1_000_000;
+    private static final int CODE_COUNT = 9_000_000;
+
+    @Test
+    void everySequenceNumberGetsItsOwnSevenDigitCode() {
+        RoomCodeAllocator allocator = new RoomCodeAllocator(sequence(), "0x5DEECE66D");
+        BitSet seen = new BitSet(CODE_COUNT);
+
+        for (int i = 0; i < CODE_COUNT; i++) {
+            String code = allocator.nextCode();
+            int value = Integer.parseInt(code);
+
+            if (value < FIRST_CODE || value >= FIRST_CODE + CODE_COUNT) fail("Code out of range: " + code);
+            if (seen.get(value - FIRST_CODE)) fail("Code handed out twice: " + code);
+            seen.set(value - FIRST_CODE);
+        }
+
+        // All codes are taken, the permutation is a bijection on the range
+        assertThat(seen.cardinality()).isEqualTo(CODE_COUNT);
+    }
+
+    @Test
+    void codesStartOverAfterTheWholeRange() {
+        RoomCodeAllocator allocator = new RoomCodeAllocator(sequence(), "0x5DEECE66D");
+        List<String> first = codes(allocator, 3);
+
+        for (int i = 3; i < CODE_COUNT; i++) allocator.nextCode();
+
+        assertThat(codes(allocator, 3)).isEqualTo(first);
+    }
+
+    @Test
+    void sequenceIsReadOncePerBlock() {
+        JdbcTemplate jdbcTemplate = sequence();
+        RoomCodeAllocator allocator = new RoomCodeAllocator(jdbcTemplate, "0x5DEECE66D");
+
+        codes(allocator, 250);
+
+        verify(jdbcTemplate, times(3)).queryForObject(anyString(), eq(Long.class));
+    }
+
+    @Test
+    void keyDecidesTheOrderOfCodes() {
+        List<String> codes = codes(new RoomCodeAllocator(sequence(), "0x5DEECE66D"), 1_000);
+        List<String> sameKey = codes(new RoomCodeAllocator(sequence(), "0x5DEECE66D"), 1_000);
+        List<String> otherKey = codes(new RoomCodeAllocator(sequence(), "42"), 1_000);
+
+        assertThat(sameKey).isEqualTo(codes);
+        assertThat(otherKey).isNotEqualTo(codes);
+    }
+
+    @Test
+    void consecutiveRoomsDoNotGetConsecutiveCodes() {
+        List<String> codes = codes(new RoomCodeAllocator(sequence(), "0x5DEECE66D"), 1_000);
+
+        int consecutive = 0;
+        for (int i = 1; i < codes.size(); i++) {
+            if (Math.abs(Integer.parseInt(codes.get(i)) - Integer.parseInt(codes.get(i - 1))) == 1) consecutive++;
+        }
+        assertThat(consecutive).isLessThan(5);
+    }
+
+    // The sequence hands out blocks 0, 1, 2, ...
+    private static JdbcTemplate sequence() {
+        AtomicLong block = new AtomicLong();
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenAnswer(invocation -> block.getAndIncrement());
+        return jdbcTemplate;
+    }
+
+    private static List<String> codes(RoomCodeAllocator allocator, int count) {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < count; i++) codes.add(allocator.nextCode());
+        return codes;
+    }
+}
@@ -46,8 +46,9 @@ export function getParticipantsCount(roomCode: string) {
   return apiRequest(`api/room/public/${roomCode}/participants`);
 }
 
-export function getRoomsHistory() {
-  return apiRequest(`api/room/secure/history`, "GET", true);
+export function getRoomsHistory(cursor?: string) {
+  const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : "";
+  return apiRequest(`api/room/secure/history${query}`, "GET", true);
 }
 
 export function joinRoom(roomCode: string, userId: number, username: string) {
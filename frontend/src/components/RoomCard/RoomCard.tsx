@@ -13,9 +13,9 @@ const RoomCard: React.FC<RoomCardProps> = ({
   onClick,
 }) => {
   const isOwner = room.ownerId === currentUserId;
-  const participantCount = room.participants
-    ? Object.keys(room.participants).length
-    : 0;
+  const participantCount =
+    room.participantCount ??
+    (room.participants ? Object.keys(room.participants).length : 0);
 
   const formatDate = (dateString: string) => {
     const date = new Date(dateString);
@@ -1,4 +1,4 @@
-import { useEffect, useState } from "react";
+import { useCallback, useEffect, useState } from "react";
 import type { Room } from "../types/Room";
 import { getRoomsHistory } from "../api/roomApi";
 
@@ -6,42 +6,62 @@ type useHistoryPageLogicReturn = {
   rooms: Room[];
   error: string;
   loading: boolean;
+  hasMore: boolean;
+  loadingMore: boolean;
+  loadMore: () => void;
 };
 
 export const useHistoryPageLogic = (): useHistoryPageLogicReturn => {
   const [rooms, setRooms] = useState<Room[]>([]);
   const [error, setError] = useState<string>("");
   const [loading, setLoading] = useState<boolean>(false);
+  const [loadingMore, setLoadingMore] = useState<boolean>(false);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+
+  // History comes in pages, nextCursor points at the next one
+  const loadPage = useCallback(async (cursor?: string) => {
+    const response = await getRoomsHistory(cursor);
+    if (response.status !== 200) {
+      setError("Błąd podczas pobierania historii.");
+      return;
+    }
+
+    const roomsFromApi: Room[] = response.result.rooms.map((room: any) => ({
+      roomCode: room.roomCode,
+      name: room.name,
+      participants: room.participants,
+      participantCount: room.participantCount,
+      ownerId: room.ownerId,
+      createdAt: room.createdAt,
+    }));
+
+    setRooms((previous) => (cursor ? [...previous, ...roomsFromApi] : roomsFromApi));
+    setNextCursor(response.result.nextCursor);
+  }, []);
 
   useEffect(() => {
     const loadRooms = async () => {
       setLoading(true);
-      const response = await getRoomsHistory();
-      if (response.status !== 200) {
-        setError("Błąd podczas pobierania historii.");
-        return;
-      }
-
-      const roomsFromApi: Room[] = response.result.map((room: any) => ({
-        roomCode: room.roomCode,
-        name: room.name,
-        categoryIds: room.categoryIds,
-        participants: room.participants,
-        ownerId: room.ownerId,
-        createdAt: room.createdAt,
-      }));
-
-      console.log(roomsFromApi);
-      setRooms(roomsFromApi);
+      await loadPage();
       setLoading(false);
     };
 
     loadRooms();
-  }, []);
+  }, [loadPage]);
+
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    await loadPage(nextCursor);
+    setLoadingMore(false);
+  };
 
   return {
     rooms,
     error,
     loading,
+    hasMore: nextCursor !== null,
+    loadingMore,
+    loadMore,
   };
 };
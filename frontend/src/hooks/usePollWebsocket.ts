@@ -38,7 +38,9 @@ const usePollWebsocket = (
       setError("Nie podano kodu pokoju lub id kategori");
       return;
     }
-    const socket = new SockJS("http://localhost:8080/ws-poll");
+    const socket = new SockJS(
+      "http://localhost:8080/ws-poll?room=" + encodeURIComponent(roomCode)
+    );
     const stompClient = new Client({
       webSocketFactory: () => socket,
       reconnectDelay: 5000,
@@ -32,10 +32,18 @@ const useRoomWebsocket = (
       setError("Nie podano kodu pokoju");
       return;
     }
-    const socket = new SockJS("http://localhost:8080/ws-room");
+    const socket = new SockJS(
+      "http://localhost:8080/ws-room?room=" + encodeURIComponent(roomCode)
+    );
     const stompClient = new Client({
       webSocketFactory: () => socket,
       reconnectDelay: 5000,
+      // lets the server drop us from the room once the tab is gone
+      connectHeaders: user
+        ? { roomCode: roomCode, userId: String(user.id) }
+        : { roomCode: roomCode },
+      heartbeatIncoming: 10000,
+      heartbeatOutgoing: 10000,
       onConnect: () => {
         setIsConnected(true);
         stompClient.subscribe("/topic/room/" + roomCode, (response) => {
@@ -8,7 +8,8 @@ import "./HistoryPage.css";
 import { useNavigate } from "react-router-dom";
 
 const HistoryPage = () => {
-  const { rooms, error, loading } = useHistoryPageLogic();
+  const { rooms, error, loading, hasMore, loadingMore, loadMore } =
+    useHistoryPageLogic();
   const { user } = useUser();
   const navigate = useNavigate();
 
@@ -39,6 +40,16 @@ const HistoryPage = () => {
           currentUserId={user?.id || -1}
           onRoomClick={handleRoomClick}
         />
+
+        {hasMore && (
+          <button
+            className="load-more-btn"
+            onClick={loadMore}
+            disabled={loadingMore}
+          >
+            {loadingMore ? "Ładowanie..." : "Pokaż więcej"}
+          </button>
+        )}
       </div>
 
       <style>{`
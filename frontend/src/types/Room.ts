@@ -6,5 +6,6 @@ export type Room = {
   categorySets: { setId: number; categoryId: number }[];
   ownerId: number;
   participants: Participant[];
+  participantCount?: number;
   createdAt: string;
 };